@@ -0,0 +1,55 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class AdmissionControllerTest {
+
+    @Test
+    public void testRejectsOverLimit() {
+        AdmissionController controller = new AdmissionController(2);
+        assertTrue(controller.tryAcquire());
+        assertTrue(controller.tryAcquire());
+        assertEquals(0, controller.getAvailableSlots());
+
+        // never waits for a slot:
+        assertFalse(controller.tryAcquire());
+        assertEquals(2, controller.getInFlightCount());
+
+        controller.release();
+        assertTrue(controller.tryAcquire());
+        assertEquals(2, controller.getInFlightCount());
+    }
+
+    @Test
+    public void testRaisingLimitAdmitsMore() {
+        AdmissionController controller = new AdmissionController(1);
+        assertTrue(controller.tryAcquire());
+        assertFalse(controller.tryAcquire());
+
+        controller.setMaxConcurrentRequests(2);
+        assertTrue(controller.tryAcquire());
+    }
+
+    @Test
+    public void testImmediateIsNeverRejected() {
+        AdmissionController controller = new AdmissionController(1);
+        assertTrue(controller.tryAcquire());
+        controller.acquireNow();
+        assertEquals(2, controller.getInFlightCount());
+        assertEquals(0, controller.getAvailableSlots());
+
+        // the immediate request still counts towards the limit:
+        controller.release();
+        assertFalse(controller.tryAcquire());
+        controller.release();
+        assertEquals(1, controller.getAvailableSlots());
+    }
+}
@@ -0,0 +1,59 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class BandwidthLimiterTest {
+
+    @Test
+    public void testUnlimited() {
+        BandwidthLimiter limiter = new BandwidthLimiter(null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertFalse(limiter.isLimited());
+        assertSame(out, limiter.wrap(out));
+    }
+
+    @Test
+    public void testPacing() throws IOException {
+        // the bucket starts full (one second worth of tokens), so writing two seconds worth takes at least one second:
+        BandwidthLimiter limiter = new BandwidthLimiter(new BandwidthLimiter.TokenBucket(50 * 1024));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] data = new byte[100 * 1024];
+
+        long start = System.currentTimeMillis();
+        OutputStream throttled = limiter.wrap(out);
+        throttled.write(data);
+        throttled.close();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(data.length, out.size());
+        assertTrue("Elapsed " + elapsed, elapsed >= 900);
+    }
+
+    @Test
+    public void testSharedBucket() throws IOException {
+        BandwidthLimiter.TokenBucket shared = new BandwidthLimiter.TokenBucket(50 * 1024);
+        OutputStream first = new BandwidthLimiter(shared).wrap(new ByteArrayOutputStream());
+        OutputStream second = new BandwidthLimiter(shared, null).wrap(new ByteArrayOutputStream());
+
+        long start = System.currentTimeMillis();
+        first.write(new byte[50 * 1024]);
+        second.write(new byte[50 * 1024]);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("Elapsed " + elapsed, elapsed >= 900);
+    }
+}
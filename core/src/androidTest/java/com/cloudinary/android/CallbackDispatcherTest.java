@@ -12,8 +12,11 @@ import com.cloudinary.android.callback.UploadResult;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -82,6 +85,96 @@ public class CallbackDispatcherTest extends AbstractTest {
         assertEquals(2, callbackCounter.error);
     }
 
+    @Test
+    public void testRequestCallbacks() throws InterruptedException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        CallbackDispatcher dispatcher = new DefaultCallbackDispatcher(appContext);
+        CallbackCounter twoRequestsCallbackCounter = new CallbackCounter();
+        CallbackCounter globalCallbackCounter = new CallbackCounter();
+        dispatcher.registerCallback("a", twoRequestsCallbackCounter);
+        dispatcher.registerCallback("b", twoRequestsCallbackCounter);
+        dispatcher.registerCallback(globalCallbackCounter);
+        // already registered for all requests, should not receive events twice:
+        dispatcher.registerCallback("a", globalCallbackCounter);
+
+        dispatcher.dispatchStart("a");
+        dispatcher.dispatchStart("b");
+        dispatcher.dispatchStart("c");
+
+        Thread.sleep(DISPATCH_SLEEP_MILLIS);
+        assertEquals(2, twoRequestsCallbackCounter.start);
+        assertEquals(3, globalCallbackCounter.start);
+
+        dispatcher.unregisterCallback(twoRequestsCallbackCounter);
+        dispatcher.dispatchStart("a");
+        dispatcher.dispatchStart("b");
+
+        Thread.sleep(DISPATCH_SLEEP_MILLIS);
+        assertEquals(2, twoRequestsCallbackCounter.start);
+        assertEquals(5, globalCallbackCounter.start);
+    }
+
+    @Test
+    public void testProgressCoalescing() throws InterruptedException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        CallbackDispatcher dispatcher = new DefaultCallbackDispatcher(appContext);
+        dispatcher.setMinProgressIntervalMillis(10000);
+        CallbackCounter callbackCounter = new CallbackCounter();
+        dispatcher.registerCallback(callbackCounter);
+
+        // the first update is delivered right away:
+        dispatcher.dispatchProgress("a", 1, 100);
+        Thread.sleep(DISPATCH_SLEEP_MILLIS);
+        assertEquals(1, callbackCounter.progress);
+
+        // the rest wait for the interval:
+        for (int i = 2; i <= 100; i++) {
+            dispatcher.dispatchProgress("a", i, 100);
+        }
+
+        Thread.sleep(DISPATCH_SLEEP_MILLIS);
+        assertEquals(1, callbackCounter.progress);
+        assertEquals(1, callbackCounter.lastBytes);
+
+        // the result flushes the latest progress, before the result itself:
+        dispatcher.dispatchSuccess(appContext, "a", Collections.singletonMap("test1", "result1"));
+
+        Thread.sleep(DISPATCH_SLEEP_MILLIS);
+        assertEquals(2, callbackCounter.progress);
+        assertEquals(100, callbackCounter.lastBytes);
+        assertEquals(100, callbackCounter.bytesOnSuccess);
+    }
+
+    @Test
+    public void testCallbackExecutor() throws InterruptedException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        CallbackDispatcher dispatcher = new DefaultCallbackDispatcher(appContext);
+        final List<Thread> threads = new ArrayList<>();
+        CallbackCounter callbackCounter = new CallbackCounter() {
+            @Override
+            public void onStart(String requestId) {
+                super.onStart(requestId);
+                threads.add(Thread.currentThread());
+            }
+        };
+        // a direct executor delivers the events on the dispatching thread, synchronously:
+        dispatcher.registerCallback(callbackCounter, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        dispatcher.dispatchStart("a");
+        dispatcher.dispatchProgress("a", 10, 100);
+        dispatcher.dispatchSuccess(appContext, "a", Collections.singletonMap("test1", "result1"));
+
+        assertEquals(1, callbackCounter.start);
+        assertEquals(1, callbackCounter.progress);
+        assertEquals(1, callbackCounter.success);
+        assertEquals(Thread.currentThread(), threads.get(0));
+    }
+
     @Test
     public void testQueuedResults() throws InterruptedException {
         Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
@@ -126,13 +219,15 @@ public class CallbackDispatcherTest extends AbstractTest {
         assertEquals(ErrorInfo.RESOURCE_DOES_NOT_EXIST, res1.getError().getCode());
     }
 
-    private final static class CallbackCounter implements UploadCallback {
+    private static class CallbackCounter implements UploadCallback {
 
         private int start;
         private int success;
         private int progress;
         private int reschedule;
         private int error;
+        private long lastBytes;
+        private long bytesOnSuccess;
 
         @Override
         public void onStart(String requestId) {
@@ -142,11 +237,13 @@ public class CallbackDispatcherTest extends AbstractTest {
         @Override
         public void onProgress(String requestId, long bytes, long totalBytes) {
             this.progress++;
+            this.lastBytes = bytes;
         }
 
         @Override
         public void onSuccess(String requestId, Map resultData) {
             this.success++;
+            this.bytesOnSuccess = lastBytes;
         }
 
         @Override
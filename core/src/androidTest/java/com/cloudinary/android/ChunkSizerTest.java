@@ -0,0 +1,72 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class ChunkSizerTest {
+    private static final int MIN = 1000;
+    private static final int MAX = 64000;
+
+    @Test
+    public void testGrowsAfterFastChunks() {
+        ChunkSizer chunkSizer = new ChunkSizer(8000, MIN, MAX);
+
+        // far below the target duration, but the size at most doubles per chunk:
+        chunkSizer.onChunkUploaded(8000, 100);
+        assertEquals(16000, chunkSizer.getChunkSize());
+        chunkSizer.onChunkUploaded(16000, 100);
+        assertEquals(32000, chunkSizer.getChunkSize());
+        chunkSizer.onChunkUploaded(32000, 100);
+        assertEquals(MAX, chunkSizer.getChunkSize());
+        chunkSizer.onChunkUploaded(MAX, 100);
+        assertEquals(MAX, chunkSizer.getChunkSize());
+    }
+
+    @Test
+    public void testShrinksAfterSlowChunk() {
+        ChunkSizer chunkSizer = new ChunkSizer(8000, MIN, MAX);
+
+        // far above the target duration, but the size at most halves per chunk:
+        chunkSizer.onChunkUploaded(8000, 10 * ChunkSizer.TARGET_CHUNK_MILLIS);
+        assertEquals(4000, chunkSizer.getChunkSize());
+
+        // a chunk that took exactly the target duration keeps its size:
+        chunkSizer = new ChunkSizer(8000, MIN, MAX);
+        chunkSizer.onChunkUploaded(8000, ChunkSizer.TARGET_CHUNK_MILLIS);
+        assertEquals(8000, chunkSizer.getChunkSize());
+    }
+
+    @Test
+    public void testShrinksAfterFailure() {
+        ChunkSizer chunkSizer = new ChunkSizer(8000, MIN, MAX);
+        chunkSizer.onChunkFailed();
+        assertEquals(4000, chunkSizer.getChunkSize());
+        chunkSizer.onChunkFailed();
+        chunkSizer.onChunkFailed();
+        assertEquals(MIN, chunkSizer.getChunkSize());
+        chunkSizer.onChunkFailed();
+        assertEquals(MIN, chunkSizer.getChunkSize());
+    }
+
+    @Test
+    public void testClampsInitialSize() {
+        assertEquals(MIN, new ChunkSizer(MIN / 2, MIN, MAX).getChunkSize());
+        assertEquals(MAX, new ChunkSizer(MAX * 2, MIN, MAX).getChunkSize());
+    }
+
+    @Test
+    public void testFixedSizeNeverChanges() {
+        ChunkSizer chunkSizer = ChunkSizer.fixed(8000);
+        assertFalse(chunkSizer.isAdaptive());
+        chunkSizer.onChunkUploaded(8000, 1);
+        chunkSizer.onChunkFailed();
+        chunkSizer.onChunkUploaded(8000, 10 * ChunkSizer.TARGET_CHUNK_MILLIS);
+        assertEquals(8000, chunkSizer.getChunkSize());
+    }
+}
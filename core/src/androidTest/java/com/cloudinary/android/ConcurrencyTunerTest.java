@@ -0,0 +1,127 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class ConcurrencyTunerTest {
+    private static final long SAMPLE = ConcurrencyTuner.SAMPLE_INTERVAL_NANOS;
+
+    private final UploadMetrics metrics = new UploadMetrics();
+    private final FakeNetworkSignal networkSignal = new FakeNetworkSignal();
+    private int appliedLimit;
+    private final ConcurrencyTuner tuner = new ConcurrencyTuner(metrics, networkSignal, 1, 8, new ConcurrencyTuner.Listener() {
+        @Override
+        public void onLimitChanged(int limit) {
+            appliedLimit = limit;
+        }
+    });
+    private long now = 1;
+
+    @Test
+    public void testStartsFromNetworkType() {
+        networkSignal.networkType = NetworkSignal.NetworkType.SLOW_CELLULAR;
+        sample();
+        assertEquals(1, tuner.getLimit());
+        assertEquals(1, appliedLimit);
+
+        networkSignal.networkType = NetworkSignal.NetworkType.FAST_CELLULAR;
+        sample();
+        assertEquals(5, tuner.getLimit());
+
+        networkSignal.networkType = NetworkSignal.NetworkType.WIFI;
+        sample();
+        assertEquals(8, tuner.getLimit());
+    }
+
+    @Test
+    public void testIncreasesWhileThroughputGrows() {
+        networkSignal.networkType = NetworkSignal.NetworkType.FAST_CELLULAR;
+        sample();
+        assertEquals(5, tuner.getLimit());
+
+        setInFlight(5);
+        transfer(1000, 10);
+        assertEquals(6, tuner.getLimit());
+
+        setInFlight(6);
+        transfer(1200, 10);
+        assertEquals(7, tuner.getLimit());
+
+        // no gain from the last increase, take it back and hold:
+        setInFlight(7);
+        transfer(1210, 10);
+        assertEquals(6, tuner.getLimit());
+
+        setInFlight(6);
+        transfer(1210, 10);
+        assertEquals(6, tuner.getLimit());
+        assertEquals(6, appliedLimit);
+    }
+
+    @Test
+    public void testDoesNotIncreaseWhenNotSaturated() {
+        networkSignal.networkType = NetworkSignal.NetworkType.FAST_CELLULAR;
+        sample();
+
+        setInFlight(2);
+        transfer(1000, 10);
+        transfer(2000, 10);
+        assertEquals(5, tuner.getLimit());
+    }
+
+    @Test
+    public void testHalvesOnErrors() {
+        networkSignal.networkType = NetworkSignal.NetworkType.WIFI;
+        sample();
+        assertEquals(8, tuner.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            metrics.getFailedChunks().increment();
+        }
+        transfer(1000, 10);
+        assertEquals(4, tuner.getLimit());
+        assertEquals(4, appliedLimit);
+    }
+
+    @Test
+    public void testHalvesOnThroughputDrop() {
+        networkSignal.networkType = NetworkSignal.NetworkType.WIFI;
+        sample();
+
+        setInFlight(8);
+        transfer(1000, 10);
+        transfer(500, 10);
+        assertEquals(4, tuner.getLimit());
+    }
+
+    private void transfer(long bytes, int chunks) {
+        metrics.getUploadedBytes().add(bytes);
+        for (int i = 0; i < chunks; i++) {
+            metrics.getChunkLatency().record(100);
+        }
+        sample();
+    }
+
+    private void setInFlight(int requests) {
+        metrics.getInFlightRequests().add(requests - metrics.getInFlightRequests().get());
+    }
+
+    private void sample() {
+        now += SAMPLE;
+        tuner.sample(now);
+    }
+
+    private static final class FakeNetworkSignal implements NetworkSignal {
+        NetworkType networkType = NetworkType.UNKNOWN;
+
+        @Override
+        public NetworkType getNetworkType() {
+            return networkType;
+        }
+    }
+}
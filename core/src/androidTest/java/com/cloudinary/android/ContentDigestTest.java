@@ -0,0 +1,69 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import com.cloudinary.android.payload.ByteArrayPayload;
+import com.cloudinary.android.payload.PositionalSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class ContentDigestTest {
+
+    @Test
+    public void testNoDigestRequested() {
+        assertNull(ContentDigest.fromOption(null));
+        assertNull(ContentDigest.fromOption(" "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedDigest() {
+        ContentDigest.fromOption("sha256,crc32");
+    }
+
+    @Test
+    public void testOutOfOrderUpdates() throws Exception {
+        byte[] data = randomBytes(10000);
+        ContentDigest digest = ContentDigest.fromOption("sha1,sha256,md5");
+
+        digest.update(0, data, 0, 3000);
+        // beyond the hashed prefix - skipped:
+        digest.update(6000, data, 6000, 4000);
+        // overlaps the hashed prefix - only the new bytes are hashed:
+        digest.update(2000, data, 2000, 4000);
+        assertEquals(6000, digest.getPosition());
+
+        PositionalSource source = new ByteArrayPayload(data).openPositionalSource(null);
+        digest.catchUp(source, data.length);
+        source.close();
+
+        Map<String, Object> result = new HashMap<>();
+        digest.addToResult(result);
+        assertEquals(hex("SHA-1", data), result.get("content_sha1"));
+        assertEquals(hex("SHA-256", data), result.get("content_sha256"));
+        assertEquals(hex("MD5", data), result.get("content_md5"));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(1).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String hex(String algorithm, byte[] data) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance(algorithm).digest(data);
+        return String.format("%0" + digest.length * 2 + "x", new BigInteger(1, digest));
+    }
+}
@@ -5,6 +5,7 @@ import android.content.Context;
 import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
 import androidx.test.platform.app.InstrumentationRegistry;
 
+import com.cloudinary.android.callback.UploadStatus;
 import com.cloudinary.android.payload.FilePayload;
 
 import org.awaitility.Awaitility;
@@ -13,10 +14,16 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4ClassRunner.class)
 public class ImmediateRequestHandlerTest extends AbstractTest {
@@ -51,11 +58,80 @@ public class ImmediateRequestHandlerTest extends AbstractTest {
         assertEquals(1, requestsRunner.taskRan);
     }
 
+    @Test
+    public void testPriorityOrder() throws IOException, InterruptedException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        BlockingProcessor processor = new BlockingProcessor();
+        DefaultImmediateRequestsRunner requestsRunner = new DefaultImmediateRequestsRunner(processor, 1, 10);
+
+        // occupy the only thread so the next requests queue up:
+        UploadRequest<FilePayload> first = buildUploadRequest(buildPayload(), 1000);
+        requestsRunner.runRequest(appContext, first);
+        UploadRequest<FilePayload> low = buildUploadRequest(buildPayload(), 1000).priority(UploadRequest.PRIORITY_LOW);
+        requestsRunner.runRequest(appContext, low);
+        UploadRequest<FilePayload> normal = buildUploadRequest(buildPayload(), 1000);
+        requestsRunner.runRequest(appContext, normal);
+        UploadRequest<FilePayload> high = buildUploadRequest(buildPayload(), 1000).priority(UploadRequest.PRIORITY_HIGH);
+        requestsRunner.runRequest(appContext, high);
+
+        processor.release.countDown();
+        assertTrue(processor.done.await(10, TimeUnit.SECONDS));
+        assertEquals(first.getRequestId(), processor.order.get(0));
+        assertEquals(high.getRequestId(), processor.order.get(1));
+        assertEquals(normal.getRequestId(), processor.order.get(2));
+        assertEquals(low.getRequestId(), processor.order.get(3));
+    }
+
+    @Test
+    public void testPriorityAging() {
+        long now = System.nanoTime();
+        long twoMinutesAgo = now - TimeUnit.MINUTES.toNanos(2);
+        assertTrue(DefaultImmediateRequestsRunner.rank(now, 1) < DefaultImmediateRequestsRunner.rank(now, 0));
+        // a request waiting long enough runs before newer requests of a higher priority:
+        assertTrue(DefaultImmediateRequestsRunner.rank(twoMinutesAgo, 0) < DefaultImmediateRequestsRunner.rank(now, 1));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testQueueBound() throws IOException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        BlockingProcessor processor = new BlockingProcessor();
+        DefaultImmediateRequestsRunner requestsRunner = new DefaultImmediateRequestsRunner(processor, 1, 1);
+        try {
+            requestsRunner.runRequest(appContext, buildUploadRequest(buildPayload(), 1000));
+            requestsRunner.runRequest(appContext, buildUploadRequest(buildPayload(), 1000));
+            requestsRunner.runRequest(appContext, buildUploadRequest(buildPayload(), 1000));
+        } finally {
+            requestsRunner.cancelAllRequests();
+            processor.release.countDown();
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testNullContext() {
         MediaManager.get().upload("path").startNow(null);
     }
 
+    private static class BlockingProcessor implements RequestProcessor {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        final List<String> order = new ArrayList<>();
+
+        @Override
+        public UploadStatus processRequest(Context context, RequestParams params) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return UploadStatus.FAILURE;
+            }
+
+            synchronized (order) {
+                order.add(params.getString("requestId", null));
+            }
+            done.countDown();
+            return UploadStatus.SUCCESS;
+        }
+    }
+
     private class ImmediateRunnerForTests extends DefaultImmediateRequestsRunner {
         int taskRan = 0;
 
@@ -0,0 +1,36 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import com.cloudinary.utils.ObjectUtils;
+
+import org.cloudinary.json.JSONException;
+import org.cloudinary.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class JsonResponseParserTest {
+    private static final String RESPONSE = "{\"public_id\":\"sample\",\"version\":1712345678,\"ratio\":1.5,\"placeholder\":false,\"missing\":null," +
+            "\"tags\":[\"a\",\"\\u00e9t\\u00e9\"],\"eager\":[{\"transformation\":\"c_fill,w_100\",\"width\":100},{}]," +
+            "\"colors\":[[\"#A0B0C0\",12.5]],\"empty\":[]}\n";
+
+    @Test
+    public void testSameResultAsJSONObject() throws JSONException, UnsupportedEncodingException {
+        Map<String, Object> expected = ObjectUtils.toMap(new JSONObject(RESPONSE));
+        Map<String, Object> actual = JsonResponseParser.parse(new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test(expected = JSONException.class)
+    public void testInvalidResponse() throws JSONException {
+        JsonResponseParser.parse(new ByteArrayInputStream("<html>Bad gateway</html>".getBytes()));
+    }
+}
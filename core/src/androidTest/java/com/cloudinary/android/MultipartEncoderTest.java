@@ -0,0 +1,52 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static junit.framework.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class MultipartEncoderTest {
+    private static final String BOUNDARY = "0123456789abcdef";
+    private static final String CHARSET = "UTF-8";
+
+    @Test
+    public void testComputedLengthMatchesOutput() throws IOException {
+        byte[] content = new byte[100 * 1024];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MultipartEncoder encoder = new MultipartEncoder(out, BOUNDARY, CHARSET);
+        encoder.writeFormField("public_id", "sample");
+        encoder.writeFormField("context", "caption=été");
+        encoder.writeFilePartHeader("file", "קובץ.jpg");
+        encoder.writeContent(content, 0, content.length);
+        encoder.writeFilePartEnd();
+        encoder.finish();
+
+        long expectedLength = MultipartUtility.formFieldLength(BOUNDARY, CHARSET, "public_id", "sample") +
+                MultipartUtility.formFieldLength(BOUNDARY, CHARSET, "context", "caption=été") +
+                MultipartUtility.filePartLength(BOUNDARY, CHARSET, "file", "קובץ.jpg", content.length) +
+                MultipartUtility.closingLength(BOUNDARY, CHARSET);
+
+        assertEquals(expectedLength, out.size());
+    }
+
+    @Test
+    public void testFormFieldEncoding() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MultipartEncoder encoder = new MultipartEncoder(out, BOUNDARY, CHARSET);
+        encoder.writeFormField("tags", "a,b");
+        encoder.finish();
+
+        assertEquals("--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"tags\"\r\n" +
+                "Content-Type: text/plain; charset=UTF-8\r\n" +
+                "\r\n" +
+                "a,b\r\n" +
+                "--" + BOUNDARY + "--\r\n", out.toString(CHARSET));
+    }
+}
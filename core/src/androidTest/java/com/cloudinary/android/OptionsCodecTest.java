@@ -0,0 +1,93 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import com.cloudinary.EagerTransformation;
+import com.cloudinary.Transformation;
+import com.cloudinary.utils.ObjectUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.junit.Assert.assertArrayEquals;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class OptionsCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, Object> options = options();
+        String encoded = OptionsCodec.encode(options);
+        assertTrue(encoded.startsWith("c1:"));
+
+        Map<String, Object> decoded = OptionsCodec.decode(encoded);
+        assertEquals("my_folder", decoded.get("folder"));
+        assertEquals(true, decoded.get("overwrite"));
+        assertEquals(6 * 1024 * 1024, decoded.get("chunk_size"));
+        assertEquals(1234567890123L, decoded.get("timestamp"));
+        assertEquals(0.5, decoded.get("quality_analysis_threshold"));
+        assertNull(decoded.get("public_id"));
+        assertTrue(decoded.containsKey("public_id"));
+        assertArrayEquals(new String[]{"a", "b"}, (String[]) decoded.get("tags"));
+        assertEquals(Arrays.asList("jpg", "png"), decoded.get("allowed_formats"));
+        assertEquals(Collections.singletonMap("alt", "אלט"), decoded.get("context"));
+        assertEquals(((Transformation) options.get("transformation")).generate(), ((Transformation) decoded.get("transformation")).generate());
+    }
+
+    @Test
+    public void testUnsupportedValuesUseSerialization() throws Exception {
+        Map<String, Object> options = options();
+        options.put("eager", Collections.singletonList(new EagerTransformation().width(100).format("png")));
+        options.put("date", new Date(1000));
+        String encoded = OptionsCodec.encode(options);
+        assertFalse(encoded.startsWith("c1:"));
+
+        Map<String, Object> decoded = OptionsCodec.decode(encoded);
+        assertEquals(new Date(1000), decoded.get("date"));
+        assertEquals("my_folder", decoded.get("folder"));
+    }
+
+    @Test
+    public void testDecodesLegacyOptions() throws Exception {
+        Map<String, Object> decoded = OptionsCodec.decode(ObjectUtils.serialize(options()));
+        assertEquals("my_folder", decoded.get("folder"));
+        assertEquals(6 * 1024 * 1024, decoded.get("chunk_size"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsUnknownVersion() throws Exception {
+        OptionsCodec.decode("c9:AAAA");
+    }
+
+    @Test
+    public void testSmallerThanSerialization() throws Exception {
+        Map<String, Object> options = options();
+        assertTrue(OptionsCodec.encode(options).length() * 2 < ObjectUtils.serialize(options).length());
+    }
+
+    private static Map<String, Object> options() {
+        Map<String, Object> options = new HashMap<>();
+        options.put("folder", "my_folder");
+        options.put("overwrite", true);
+        options.put("chunk_size", 6 * 1024 * 1024);
+        options.put("timestamp", 1234567890123L);
+        options.put("quality_analysis_threshold", 0.5);
+        options.put("public_id", null);
+        options.put("tags", new String[]{"a", "b"});
+        options.put("allowed_formats", Arrays.asList("jpg", "png"));
+        options.put("context", Collections.singletonMap("alt", "אלט"));
+        options.put("transformation", new Transformation().width(200).crop("fill").chain().effect("sepia"));
+        return options;
+    }
+}
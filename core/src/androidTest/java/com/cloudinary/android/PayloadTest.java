@@ -1,5 +1,6 @@
 package com.cloudinary.android;
 
+import android.content.Context;
 import android.net.Uri;
 
 import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
@@ -11,6 +12,7 @@ import com.cloudinary.android.payload.LocalUriPayload;
 import com.cloudinary.android.payload.Payload;
 import com.cloudinary.android.payload.PayloadFactory;
 import com.cloudinary.android.payload.PayloadNotFoundException;
+import com.cloudinary.android.payload.PositionalSource;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -22,8 +24,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 @RunWith(AndroidJUnit4ClassRunner.class)
 public class PayloadTest extends AbstractTest {
@@ -86,6 +93,62 @@ public class PayloadTest extends AbstractTest {
         verifyLengthAndRecreation(payload, 3381);
     }
 
+    @Test
+    public void testPositionalSources() throws PayloadNotFoundException, IOException {
+        byte[] expected = new byte[(int) assetFile.length()];
+        try (FileInputStream fileInputStream = new FileInputStream(assetFile)) {
+            assertEquals(expected.length, fileInputStream.read(expected));
+        }
+
+        verifyPositionalSource(new FilePayload(assetFile.getAbsolutePath()), expected);
+        verifyPositionalSource(new ByteArrayPayload(expected), expected);
+        verifyPositionalSource(new LocalUriPayload(Uri.fromFile(assetFile)), expected);
+    }
+
+    @Test
+    public void testBytesPayloadReferences() throws PayloadNotFoundException, IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        byte[] expected = new byte[]{1, 2, 3, 4, 5};
+        ByteArrayPayload payload = new ByteArrayPayload(expected);
+
+        // the handle references the very same array:
+        String handleUri = payload.toHandleUri("handleRequest");
+        Payload fromHandle = PayloadFactory.fromUri(handleUri);
+        assertSame(expected, fromHandle.getData());
+
+        Payload fromBlob = PayloadFactory.fromUri(payload.toBlobUri(context, "blobRequest"));
+        assertEquals(expected.length, fromBlob.getLength(context));
+        verifyPositionalSource(fromBlob, expected);
+        try (InputStream inputStream = (InputStream) fromBlob.prepare(context)) {
+            byte[] actual = new byte[expected.length];
+            assertEquals(expected.length, inputStream.read(actual));
+            assertTrue(Arrays.equals(expected, actual));
+        }
+
+        ByteArrayPayload.release(context, "handleRequest");
+        ByteArrayPayload.release(context, "blobRequest");
+        assertNull(PayloadFactory.fromUri(handleUri).getData());
+        try {
+            fromBlob.getLength(context);
+            fail("The blob should have been deleted");
+        } catch (PayloadNotFoundException e) {
+            // expected
+        }
+    }
+
+    private void verifyPositionalSource(Payload payload, byte[] expected) throws PayloadNotFoundException, IOException {
+        try (PositionalSource source = payload.openPositionalSource(InstrumentationRegistry.getInstrumentation().getContext())) {
+            assertEquals(expected.length, source.length());
+
+            // read the second half first, then the first half, to make sure reads don't depend on each other:
+            int half = expected.length / 2;
+            byte[] actual = new byte[expected.length];
+            assertEquals(expected.length - half, source.read(half, actual, half, expected.length - half));
+            assertEquals(half, source.read(0, actual, 0, half));
+            assertTrue(Arrays.equals(expected, actual));
+            assertEquals(-1, source.read(expected.length, actual, 0, 1));
+        }
+    }
 
     private void verifyLengthAndRecreation(Payload payload, long expectedLength) throws PayloadNotFoundException {
         assertEquals(expectedLength, payload.getLength(InstrumentationRegistry.getInstrumentation().getContext()));
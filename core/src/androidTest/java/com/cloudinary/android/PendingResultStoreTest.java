@@ -0,0 +1,79 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.cloudinary.android.callback.ErrorInfo;
+import com.cloudinary.android.callback.UploadResult;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class PendingResultStoreTest {
+    private final UploadMetrics metrics = new UploadMetrics();
+
+    @Test
+    public void testEvictsEldestWhenFull() {
+        PendingResultStore store = new PendingResultStore(null, metrics);
+        for (int i = 0; i <= PendingResultStore.MAX_ENTRIES; i++) {
+            store.put("request" + i, success(i), 1000);
+        }
+
+        assertEquals(PendingResultStore.MAX_ENTRIES, store.size());
+        assertEquals(1, metrics.getEvictedResults().get());
+        assertNull(store.pop("request0", 1000));
+        assertEquals(1, store.pop("request1", 1000).getSuccessResultData().get("index"));
+    }
+
+    @Test
+    public void testExpires() {
+        PendingResultStore store = new PendingResultStore(null, metrics);
+        store.put("old", success(0), 1000);
+        store.put("fresh", success(1), 1000 + PendingResultStore.RESULT_TTL_MILLIS);
+        assertNull(store.pop("old", 2000 + PendingResultStore.RESULT_TTL_MILLIS));
+        assertEquals(1, metrics.getExpiredResults().get());
+
+        // expired results are also dropped when adding new ones:
+        store.put("newer", success(2), 2001 + 2 * PendingResultStore.RESULT_TTL_MILLIS);
+        assertEquals(1, store.size());
+        assertEquals(2, metrics.getExpiredResults().get());
+    }
+
+    @Test
+    public void testSpillsToDisk() {
+        PendingResultStore store = new PendingResultStore(InstrumentationRegistry.getInstrumentation().getTargetContext(), metrics);
+        String spilledSuccess = UUID.randomUUID().toString();
+        String spilledError = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        store.put(spilledSuccess, success(7), now);
+        store.put(spilledError, new UploadResult(null, new ErrorInfo(ErrorInfo.NETWORK_ERROR, "timeout")), now);
+        for (int i = 0; i < PendingResultStore.MAX_ENTRIES; i++) {
+            store.put(UUID.randomUUID().toString(), success(i), now);
+        }
+
+        assertEquals(2, metrics.getSpilledResults().get());
+        assertEquals(0, metrics.getEvictedResults().get());
+
+        UploadResult success = store.pop(spilledSuccess, now);
+        assertNotNull(success);
+        assertEquals(7, success.getSuccessResultData().get("index"));
+        UploadResult error = store.pop(spilledError, now);
+        assertEquals(ErrorInfo.NETWORK_ERROR, error.getError().getCode());
+        assertEquals("timeout", error.getError().getDescription());
+
+        // popping removes the result from the disk too:
+        assertNull(store.pop(spilledSuccess, now));
+    }
+
+    private static UploadResult success(int index) {
+        return new UploadResult(Collections.singletonMap("index", index), null);
+    }
+}
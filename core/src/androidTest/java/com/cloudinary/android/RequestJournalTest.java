@@ -0,0 +1,95 @@
+package com.cloudinary.android;
+
+import android.content.Context;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.cloudinary.android.callback.UploadStatus;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class RequestJournalTest extends AbstractTest {
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    private final RequestJournal journal = RequestJournal.get(context);
+
+    @Test
+    public void testRequestLifecycle() {
+        String requestId = UUID.randomUUID().toString();
+        int queued = journal.count(RequestJournal.STATE_QUEUED);
+        int running = journal.count(RequestJournal.STATE_RUNNING);
+        journal.add(new UploadRequest.PayloadData("file://payload", requestId, 3, 2, 1024, 4096, 100, "options"));
+        assertEquals(queued + 1, journal.count(RequestJournal.STATE_QUEUED));
+
+        TestParams params = new TestParams();
+        assertTrue(journal.load(requestId, params));
+        assertEquals("file://payload", params.getString("uri", null));
+        assertEquals(requestId, params.getString("requestId", null));
+        assertEquals(3, params.getInt("maxErrorRetries", 0));
+        assertEquals(2, params.getInt("parallelChunkUploads", 0));
+        assertEquals(1024, params.getInt("minChunkSize", 0));
+        assertEquals(4096, params.getInt("maxChunkSize", 0));
+        assertEquals(100, params.getLong("maxBytesPerSecond", 0));
+        assertEquals("options", params.getString("options", null));
+        assertEquals(0, params.getInt(DefaultRequestProcessor.ERROR_COUNT_PARAM, -1));
+
+        journal.started(requestId);
+        assertEquals(queued, journal.count(RequestJournal.STATE_QUEUED));
+        assertEquals(running + 1, journal.count(RequestJournal.STATE_RUNNING));
+
+        // the error count of a rescheduled attempt is loaded by the next one:
+        journal.finished(requestId, UploadStatus.RESCHEDULE, 1);
+        assertEquals(queued + 1, journal.count(RequestJournal.STATE_QUEUED));
+        params = new TestParams();
+        assertTrue(journal.load(requestId, params));
+        assertEquals(1, params.getInt(DefaultRequestProcessor.ERROR_COUNT_PARAM, 0));
+
+        journal.finished(requestId, UploadStatus.SUCCESS, 1);
+        assertEquals(queued, journal.count(RequestJournal.STATE_QUEUED));
+        assertFalse(journal.load(requestId, new TestParams()));
+    }
+
+    @Test
+    public void testRemove() {
+        String requestId = UUID.randomUUID().toString();
+        journal.add(new UploadRequest.PayloadData("file://payload", requestId, 3, null));
+        journal.remove(requestId);
+        assertFalse(journal.load(requestId, new TestParams()));
+    }
+
+    @Test
+    public void testCompactKeepsRequestsRunningInThisProcess() {
+        String requestId = UUID.randomUUID().toString();
+        journal.add(new UploadRequest.PayloadData("file://payload", requestId, 3, null));
+        journal.started(requestId);
+        int running = journal.count(RequestJournal.STATE_RUNNING);
+
+        journal.compact(context);
+        assertEquals(running, journal.count(RequestJournal.STATE_RUNNING));
+        journal.remove(requestId);
+    }
+
+    @Test
+    public void testCompactKeepsRecentCheckpoints() {
+        String requestId = UUID.randomUUID().toString();
+        journal.saveCheckpoint(requestId, new UploadCheckpointStore.Checkpoint(100, 50, "uploadId"));
+        assertNotNull(journal.getCheckpoint(requestId));
+
+        // too recent to be removed:
+        journal.compact(context);
+        assertEquals(100, journal.getCheckpoint(requestId).getOffset());
+
+        journal.removeCheckpoint(requestId);
+        assertNull(journal.getCheckpoint(requestId));
+    }
+}
@@ -0,0 +1,33 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class UploadCheckpointStoreTest {
+
+    @Test
+    public void testCheckpointSurvivesNewStoreInstance() {
+        String requestId = UUID.randomUUID().toString();
+        new UploadCheckpointStore(InstrumentationRegistry.getInstrumentation().getTargetContext())
+                .save(requestId, new UploadCheckpointStore.Checkpoint(20 * 1024 * 1024, 5 * 1024 * 1024, "uploadId"));
+
+        // a new instance simulates the next attempt of the request:
+        UploadCheckpointStore store = new UploadCheckpointStore(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        UploadCheckpointStore.Checkpoint checkpoint = store.get(requestId);
+        assertEquals(20 * 1024 * 1024, checkpoint.getOffset());
+        assertEquals(5 * 1024 * 1024, checkpoint.getBufferSize());
+        assertEquals("uploadId", checkpoint.getUploadId());
+
+        store.remove(requestId);
+        assertNull(store.get(requestId));
+    }
+}
@@ -0,0 +1,140 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.cloudinary.android.payload.ByteArrayPayload;
+import com.cloudinary.android.payload.PositionalSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class UploadDedupIndexTest {
+    private UploadDedupIndex index;
+
+    @Before
+    public void setup() {
+        index = new UploadDedupIndex(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        index.clear();
+    }
+
+    @After
+    public void cleanup() {
+        index.clear();
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("tags", Arrays.asList("a", "b"));
+        options.put("folder", "f");
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("folder", "f");
+        reordered.put("tags", Arrays.asList("a", "b"));
+        reordered.put("signature", "ignored");
+
+        String key = key(new byte[]{1, 2, 3}, options);
+        assertEquals(key, key(new byte[]{1, 2, 3}, reordered));
+        assertFalse(key.equals(key(new byte[]{1, 2, 4}, options)));
+        reordered.put("folder", "g");
+        assertFalse(key.equals(key(new byte[]{1, 2, 3}, reordered)));
+    }
+
+    @Test
+    public void testResultSurvivesNewIndexInstance() {
+        index.put("key", result("sample"));
+
+        Map<String, Object> result = new UploadDedupIndex(InstrumentationRegistry.getInstrumentation().getTargetContext()).get("key");
+        assertEquals("sample", result.get("public_id"));
+        assertEquals(Arrays.asList("a", "b"), result.get("tags"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        index.put("first", result("sample"));
+        index.put("second", result("sample"));
+        index.put("third", result("other"));
+
+        assertEquals(2, index.invalidate("sample"));
+        assertNull(index.get("first"));
+        assertNull(index.get("second"));
+        assertNotNull(index.get("third"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws InterruptedException {
+        for (int i = 0; i < UploadDedupIndex.MAX_ENTRIES; i++) {
+            index.put("key" + i, result("id" + i));
+            // distinct usage times
+            Thread.sleep(1);
+        }
+
+        // key0 is used, so key1 is the least recently used:
+        assertNotNull(index.get("key0"));
+        index.put("new", result("new"));
+
+        assertNotNull(index.get("key0"));
+        assertNull(index.get("key1"));
+        assertNotNull(index.get("new"));
+    }
+
+    @Test
+    public void testStoresOnlyReplayedFields() {
+        Map<String, Object> uploaded = result("sample");
+        uploaded.put("secure_url", "https://res.cloudinary.com/demo/image/upload/v1/sample.jpg");
+        uploaded.put("colors", Arrays.asList(Arrays.asList("#FFFFFF", 90.5)));
+        uploaded.put("faces", Arrays.asList(Arrays.asList(1, 2, 3, 4)));
+        index.put("key", uploaded);
+
+        Map<String, Object> result = index.get("key");
+        assertEquals("sample", result.get("public_id"));
+        assertEquals("https://res.cloudinary.com/demo/image/upload/v1/sample.jpg", result.get("secure_url"));
+        assertFalse(result.containsKey("colors"));
+        assertFalse(result.containsKey("faces"));
+    }
+
+    @Test
+    public void testForgetsUnusedResults() {
+        index.put("old", result("old"), 1000);
+        index.put("used", result("used"), 1000);
+        assertNotNull(index.get("used", 1000 + UploadDedupIndex.MAX_AGE_MILLIS));
+
+        // results are kept as long as they are used:
+        assertNull(index.get("old", 1001 + UploadDedupIndex.MAX_AGE_MILLIS));
+        assertNotNull(index.get("used", 1001 + UploadDedupIndex.MAX_AGE_MILLIS));
+
+        // unused results are also dropped when saving new ones:
+        index.put("new", result("new"), 1002 + 2 * UploadDedupIndex.MAX_AGE_MILLIS);
+        assertEquals(0, index.invalidate("used"));
+        assertNotNull(index.get("new", 1002 + 2 * UploadDedupIndex.MAX_AGE_MILLIS));
+    }
+
+    private static String key(byte[] data, Map<String, Object> options) throws Exception {
+        PositionalSource source = new ByteArrayPayload(data).openPositionalSource(null);
+        try {
+            return UploadDedupIndex.key(source, options);
+        } finally {
+            source.close();
+        }
+    }
+
+    private static Map<String, Object> result(String publicId) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("public_id", publicId);
+        result.put("tags", Arrays.asList("a", "b"));
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package com.cloudinary.android;
+
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+
+import com.cloudinary.android.callback.ErrorInfo;
+import com.cloudinary.android.metrics.Counter;
+import com.cloudinary.android.metrics.Histogram;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4ClassRunner.class)
+public class UploadMetricsTest {
+
+    @Test
+    public void testConcurrentCounter() throws InterruptedException {
+        final Counter counter = new Counter();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        counter.add(-5);
+        assertEquals(8 * 10000 - 5, counter.get());
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(5050, snapshot.getSum());
+        assertEquals(100, snapshot.getMax());
+        // percentiles are bucket upper bounds - within a factor of two:
+        assertEquals(64, snapshot.getPercentile(50));
+        assertEquals(100, snapshot.getPercentile(99));
+        assertEquals(0, new Histogram().snapshot().getPercentile(50));
+    }
+
+    @Test
+    public void testSnapshot() {
+        UploadMetrics metrics = new UploadMetrics();
+        metrics.requestQueued("first");
+        metrics.requestQueued("second");
+        metrics.requestDequeued("first");
+        metrics.errorOccurred(ErrorInfo.NETWORK_ERROR);
+        metrics.errorOccurred(ErrorInfo.NETWORK_ERROR);
+        metrics.getChunkLatency().record(300);
+
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertEquals(1, (long) snapshot.get("requests.queued"));
+        assertEquals(2, (long) snapshot.get("errors." + ErrorInfo.NETWORK_ERROR));
+        assertEquals(2, metrics.getErrors(ErrorInfo.NETWORK_ERROR));
+        assertEquals(1, (long) snapshot.get("chunk.latency_ms.count"));
+        assertEquals(300, (long) snapshot.get("chunk.latency_ms.p50"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.cloudinary.android;
+
+/**
+ * Limits the number of requests processed at the same time to {@link com.cloudinary.android.policy.GlobalUploadPolicy#getMaxConcurrentRequests()}.
+ * Requests never wait for a slot here: they run on executor threads shared with other work (e.g. WorkManager's),
+ * so a background request over the limit is rescheduled instead. The in-flight count is exact since it's updated
+ * by the processing threads themselves.
+ */
+class AdmissionController {
+    private final Object lock = new Object();
+    private int maxConcurrentRequests;
+    private int inFlight;
+
+    AdmissionController(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    }
+
+    /**
+     * Takes a slot for the calling request if there's a free one. Every successful call must be followed by a call
+     * to {@link #release()}.
+     *
+     * @return True if a slot was taken, false if the limit was reached.
+     */
+    boolean tryAcquire() {
+        synchronized (lock) {
+            if (inFlight >= maxConcurrentRequests) {
+                return false;
+            }
+
+            inFlight++;
+            return true;
+        }
+    }
+
+    /**
+     * Takes a slot even if the limit was reached. Used for immediate requests, that must not be deferred but still
+     * count towards the limit. Must be followed by a call to {@link #release()}.
+     */
+    void acquireNow() {
+        synchronized (lock) {
+            inFlight++;
+        }
+    }
+
+    void release() {
+        synchronized (lock) {
+            inFlight--;
+        }
+    }
+
+    void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        synchronized (lock) {
+            this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        }
+    }
+
+    int getInFlightCount() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    /**
+     * @return The number of requests that can start right away.
+     */
+    int getAvailableSlots() {
+        synchronized (lock) {
+            return Math.max(0, maxConcurrentRequests - inFlight);
+        }
+    }
+}
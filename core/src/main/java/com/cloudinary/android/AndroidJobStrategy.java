@@ -10,12 +10,12 @@ import androidx.work.ExistingWorkPolicy;
 import androidx.work.NetworkType;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.Operation;
-import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import com.cloudinary.android.callback.UploadStatus;
+import com.cloudinary.android.payload.ByteArrayPayload;
 import com.cloudinary.android.policy.UploadPolicy;
 
 import java.io.File;
@@ -23,13 +23,13 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.lang.ref.WeakReference;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class AndroidJobStrategy implements BackgroundRequestStrategy {
 
+    private static final String TAG = AndroidJobStrategy.class.getSimpleName();
     private static final String JOB_TAG = "CLD";
 
     private static final Map<String, WeakReference<Thread>> threads = new ConcurrentHashMap<>();
@@ -38,6 +38,18 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
     private Context context;
 
     public static OneTimeWorkRequest adapt(UploadRequest<?> request, File payloadFile) {
+        return adapt(request, request.buildPayload(payloadFile));
+    }
+
+    /**
+     * Same as {@link #adapt(UploadRequest, File)}, but the request is added to the {@link RequestJournal} instead of a
+     * payload file.
+     */
+    public static OneTimeWorkRequest adapt(Context context, UploadRequest<?> request) {
+        return adapt(request, request.buildPayload(context));
+    }
+
+    private static OneTimeWorkRequest adapt(UploadRequest<?> request, Data inputData) {
         UploadPolicy policy = request.getUploadPolicy();
 
         Constraints.Builder constraintsBuilder = new Constraints.Builder().setRequiredNetworkType(adaptNetworkType(policy.getNetworkType())).setRequiresCharging(policy.isRequiresCharging());
@@ -46,9 +58,7 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
         }
         Constraints constraints = constraintsBuilder.build();
 
-        Data inputData = request.buildPayload(payloadFile);
-
-        return new OneTimeWorkRequest.Builder(UploadJob.class).setBackoffCriteria(adaptBackoffPolicy(policy.getBackoffPolicy()), policy.getBackoffMillis(), TimeUnit.MILLISECONDS).setInputData(inputData).setConstraints(constraints).addTag(request.getRequestId()).build();
+        return new OneTimeWorkRequest.Builder(UploadJob.class).setBackoffCriteria(adaptBackoffPolicy(policy.getBackoffPolicy()), policy.getBackoffMillis(), TimeUnit.MILLISECONDS).setInputData(inputData).setConstraints(constraints).addTag(JOB_TAG).addTag(request.getRequestId()).build();
     }
 
     private static BackoffPolicy adaptBackoffPolicy(UploadPolicy.BackoffPolicy backoffPolicy) {
@@ -75,25 +85,29 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
     }
 
     @Override
-    public void init(Context context) {
+    public void init(final Context context) {
         this.context = context;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    RequestJournal.get(context).compact(context);
+                } catch (RuntimeException e) {
+                    // e.g. the disk is full, try again next time
+                    Logger.e(TAG, "Could not compact the request journal.", e);
+                }
+            }
+        }, "CloudinaryRequestJournal").start();
     }
 
     @Override
     public void doDispatch(@SuppressWarnings("rawtypes") @NonNull UploadRequest request) {
-        File cacheDir = context.getCacheDir();
-        try {
-            // Prepare payload file placeholder to temporarily store payload data.
-            File payloadFile = File.createTempFile("payload", request.getRequestId(), cacheDir);
-            OneTimeWorkRequest uploadWorkRequest = adapt(request, payloadFile);
-            WorkManager.getInstance(context).beginUniqueWork(
-                    // Use request ID as unique work name
-                    request.getRequestId(),
-                    // If work already exist, do nothing.
-                    ExistingWorkPolicy.KEEP, uploadWorkRequest).enqueue();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        OneTimeWorkRequest uploadWorkRequest = adapt(context, request);
+        WorkManager.getInstance(context).beginUniqueWork(
+                // Use request ID as unique work name
+                request.getRequestId(),
+                // If work already exist, do nothing.
+                ExistingWorkPolicy.KEEP, uploadWorkRequest).enqueue();
     }
 
     @Override
@@ -105,11 +119,15 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
     public boolean cancelRequest(String requestId) {
         Operation operation = WorkManager.getInstance(context).cancelAllWorkByTag(requestId);
         killThread(requestId);
+        RequestJournal.get(context).remove(requestId);
+        ByteArrayPayload.release(context, requestId);
         return operation.getResult().isCancelled();
     }
 
     public int cancelAllRequests() {
         WorkManager.getInstance(context).cancelAllWork();
+        // the payloads of the removed requests are deleted by the next compaction
+        RequestJournal.get(context).removeAll();
         return killAllThreads();
     }
 
@@ -147,26 +165,12 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
 
     @Override
     public int getPendingImmediateJobsCount() {
-        return getJobCountByState(WorkInfo.State.ENQUEUED);
+        return RequestJournal.get(context).count(RequestJournal.STATE_QUEUED);
     }
 
     @Override
     public int getRunningJobsCount() {
-        return getJobCountByState(WorkInfo.State.RUNNING);
-    }
-
-    private int getJobCountByState(WorkInfo.State state) {
-        int counter = 0;
-        List<WorkInfo> list = WorkManager.getInstance(context).getWorkInfosByTagLiveData(JOB_TAG).getValue();
-        if (list != null) {
-            for (WorkInfo info : list) {
-                if (info.getState() == state) {
-                    counter++;
-                }
-            }
-            return counter;
-        }
-        return 0;
+        return RequestJournal.get(context).count(RequestJournal.STATE_RUNNING);
     }
 
     public static final class UploadJob extends Worker {
@@ -208,8 +212,12 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
         @NonNull
         @Override
         public Result doWork() {
+            String journaledRequestId = workParams.getInputData().getString(UploadRequest.PayloadData.JOURNAL_KEY);
+            if (journaledRequestId != null) {
+                return doJournaledWork(journaledRequestId);
+            }
 
-            // Prepare extract payload data from temporary file.
+            // Requests dispatched by previous versions: extract payload data from temporary file.
             String payloadFilePath = workParams.getInputData().getString(UploadRequest.PayloadData.KEY);
             if (payloadFilePath == null) {
                 // NO Payload input file created prior to request.
@@ -223,6 +231,9 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
                 requestId = payloadData.getRequestId();
                 registerThread(requestId, Thread.currentThread());
                 UploadStatus result = MediaManager.get().processRequest(context, jobInputData); // Replace this with your actual upload logic
+                if (result.isFinal()) {
+                    payloadFile.delete();
+                }
                 return adaptResult(result);
             } catch (NullPointerException | IOException | ClassNotFoundException e ) {
                 // Unable to deserialize payload data from file.
@@ -233,6 +244,34 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
             }
         }
 
+        @NonNull
+        private Result doJournaledWork(String journaledRequestId) {
+            RequestJournal journal = RequestJournal.get(context);
+            AndroidJobRequestParams jobInputData = new AndroidJobRequestParams();
+            if (!journal.load(journaledRequestId, jobInputData)) {
+                // cancelled, or finished by a previous run of this job
+                return Result.failure();
+            }
+
+            requestId = journaledRequestId;
+            registerThread(requestId, Thread.currentThread());
+            // WorkManager fails work that throws, so unless processing returns the request is recorded as failed
+            // instead of being left running:
+            UploadStatus result = UploadStatus.FAILURE;
+            try {
+                journal.started(requestId);
+                result = MediaManager.get().processRequest(context, jobInputData);
+                return adaptResult(result);
+            } finally {
+                try {
+                    // the error count is persisted, the params of the next attempt are loaded from the journal
+                    journal.finished(requestId, result, jobInputData.getInt(DefaultRequestProcessor.ERROR_COUNT_PARAM, 0));
+                } finally {
+                    unregisterThread(requestId);
+                }
+            }
+        }
+
         @NonNull
         private Result adaptResult(UploadStatus res) {
             switch (res) {
@@ -249,13 +288,19 @@ public class AndroidJobStrategy implements BackgroundRequestStrategy {
     }
 
     private static final class AndroidJobRequestParams implements RequestParams {
-        private final Bundle data;
+        private final Bundle data = new Bundle();
+
+        private AndroidJobRequestParams() {
+        }
 
         private AndroidJobRequestParams(UploadRequest.PayloadData payloadData) {
-            this.data = new Bundle();
             this.data.putString("uri", payloadData.getUri());
             this.data.putString("requestId", payloadData.getRequestId());
             this.data.putInt("maxErrorRetries", payloadData.getMaxErrorRetries());
+            this.data.putInt("parallelChunkUploads", payloadData.getParallelChunkUploads());
+            this.data.putInt("minChunkSize", payloadData.getMinChunkSize());
+            this.data.putInt("maxChunkSize", payloadData.getMaxChunkSize());
+            this.data.putLong("maxBytesPerSecond", payloadData.getMaxBytesPerSecond());
             this.data.putString("options", payloadData.getOptions());
         }
 
@@ -0,0 +1,124 @@
+package com.cloudinary.android;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Paces the upload of a request according to one or more {@link TokenBucket}s - typically the bucket shared by all
+ * the requests (global cap) and a bucket of the request itself (per request cap). Each write takes tokens from all
+ * the buckets, blocking until they are available.
+ */
+final class BandwidthLimiter {
+    // writes are paced in slices so a large write doesn't burst a whole buffer at once
+    private static final int SLICE_SIZE = 8 * 1024;
+
+    private final List<TokenBucket> buckets;
+
+    /**
+     * @param buckets The buckets to take tokens from, null buckets are ignored.
+     */
+    BandwidthLimiter(TokenBucket... buckets) {
+        this.buckets = new ArrayList<>(buckets.length);
+        for (TokenBucket bucket : buckets) {
+            if (bucket != null) {
+                this.buckets.add(bucket);
+            }
+        }
+    }
+
+    boolean isLimited() {
+        return !buckets.isEmpty();
+    }
+
+    /**
+     * @return A stream writing to the given stream at the pace of this limiter.
+     */
+    OutputStream wrap(OutputStream out) {
+        return isLimited() ? new ThrottledOutputStream(out) : out;
+    }
+
+    private void acquire(int bytes) throws InterruptedIOException {
+        for (TokenBucket bucket : buckets) {
+            bucket.acquire(bytes);
+        }
+    }
+
+    /**
+     * Token bucket refilled at a configurable rate of bytes per second, holding at most one second worth of tokens.
+     * Tokens are reserved ahead, so concurrent writers are served in the order they asked and none is starved.
+     */
+    static final class TokenBucket {
+        private long bytesPerSecond;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+            this.tokens = bytesPerSecond;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized long getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        synchronized void setBytesPerSecond(long bytesPerSecond) {
+            refill();
+            this.bytesPerSecond = bytesPerSecond;
+            tokens = Math.min(tokens, bytesPerSecond);
+        }
+
+        /**
+         * Takes the given amount of tokens, blocking until they are available.
+         */
+        void acquire(int bytes) throws InterruptedIOException {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                tokens -= bytes;
+                waitNanos = tokens >= 0 ? 0 : (long) (-tokens * 1_000_000_000d / bytesPerSecond);
+            }
+
+            if (waitNanos > 0) {
+                try {
+                    Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while waiting for upload bandwidth.");
+                }
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(bytesPerSecond, tokens + (now - lastRefillNanos) * bytesPerSecond / 1_000_000_000d);
+            lastRefillNanos = now;
+        }
+    }
+
+    private final class ThrottledOutputStream extends FilterOutputStream {
+        ThrottledOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            acquire(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int slice = Math.min(len, SLICE_SIZE);
+                acquire(slice);
+                out.write(b, off, slice);
+                off += slice;
+                len -= slice;
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.cloudinary.android.callback.UploadResult;
 import com.cloudinary.android.callback.UploadStatus;
 
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Handle the events and callbacks for uploads
@@ -27,6 +28,21 @@ interface CallbackDispatcher {
      */
     void registerCallback(String requestId, UploadCallback callback);
 
+    /**
+     * Register a callback for requests state changes and progress, delivered using the given executor.
+     * @param callback The callback to activate upon state changes and results.
+     * @param executor The executor to call the callback with, null for the main thread.
+     */
+    void registerCallback(UploadCallback callback, Executor executor);
+
+    /**
+     * Register a callback for a specific request, delivered using the given executor.
+     * @param requestId The id of the request to listen to.
+     * @param callback The callback to activate upon state changes and results.
+     * @param executor The executor to call the callback with, null for the main thread.
+     */
+    void registerCallback(String requestId, UploadCallback callback, Executor executor);
+
     /**
      * Unregister a callback
      * @param callback The callback to unregister.
@@ -62,6 +78,13 @@ interface CallbackDispatcher {
      */
     void dispatchProgress(String requestId, long bytes, long totalBytes);
 
+    /**
+     * Set the minimum time between progress updates of a request delivered to a callback. Updates that arrive sooner
+     * are merged into the next delivery, which reports the latest progress.
+     * @param minProgressIntervalMillis The minimum interval in milliseconds, 0 to deliver updates as soon as possible.
+     */
+    void setMinProgressIntervalMillis(long minProgressIntervalMillis);
+
     /**
      * Dispatch the result of a successful upload operation.
      * @param context Android context.
@@ -0,0 +1,69 @@
+package com.cloudinary.android;
+
+/**
+ * Chooses the size of the next chunk of a chunked upload. In adaptive mode the size is tuned so that each chunk
+ * takes roughly {@link #TARGET_CHUNK_MILLIS} to upload at the measured throughput - large chunks save round-trips
+ * when the network is fast, small chunks lose less work when it's slow or flaky. Failed chunks halve the size.
+ */
+final class ChunkSizer {
+    static final long TARGET_CHUNK_MILLIS = 8_000;
+    private static final double THROUGHPUT_SMOOTHING = 0.5;
+
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private int chunkSize;
+    private double bytesPerMilli = -1;
+
+    /**
+     * @param initialChunkSize The size of the first chunk, in bytes.
+     * @param minChunkSize     Lower bound for the chunk size, in bytes.
+     * @param maxChunkSize     Upper bound for the chunk size, in bytes. Equal bounds mean a fixed chunk size.
+     */
+    ChunkSizer(int initialChunkSize, int minChunkSize, int maxChunkSize) {
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.chunkSize = clamp(initialChunkSize);
+    }
+
+    static ChunkSizer fixed(int chunkSize) {
+        return new ChunkSizer(chunkSize, chunkSize, chunkSize);
+    }
+
+    boolean isAdaptive() {
+        return minChunkSize != maxChunkSize;
+    }
+
+    synchronized int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Updates the chunk size using the throughput of an uploaded chunk.
+     *
+     * @param bytes    The size of the uploaded chunk.
+     * @param duration The time it took to upload the chunk, in milliseconds.
+     */
+    synchronized void onChunkUploaded(long bytes, long duration) {
+        if (!isAdaptive()) {
+            return;
+        }
+
+        double throughput = (double) bytes / Math.max(1, duration);
+        bytesPerMilli = bytesPerMilli < 0 ? throughput : THROUGHPUT_SMOOTHING * throughput + (1 - THROUGHPUT_SMOOTHING) * bytesPerMilli;
+
+        // move towards the target size, at most doubling or halving per chunk to avoid overreacting to a single sample:
+        long target = (long) (bytesPerMilli * TARGET_CHUNK_MILLIS);
+        long next = Math.max(chunkSize / 2, Math.min(2L * chunkSize, target));
+        chunkSize = clamp(next);
+    }
+
+    synchronized void onChunkFailed() {
+        if (isAdaptive()) {
+            chunkSize = clamp(chunkSize / 2);
+        }
+    }
+
+    private int clamp(long size) {
+        return (int) Math.max(minChunkSize, Math.min(maxChunkSize, size));
+    }
+}
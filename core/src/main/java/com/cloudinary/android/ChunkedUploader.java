@@ -0,0 +1,302 @@
+package com.cloudinary.android;
+
+import com.cloudinary.ProgressCallback;
+import com.cloudinary.Uploader;
+import com.cloudinary.android.payload.PositionalSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads a payload in chunks, reading each chunk by position from a {@link PositionalSource} and sending up to
+ * {@code parallelism} chunks of the same upload (sharing the same X-Unique-Upload-Id) concurrently.
+ * The final chunk completes the upload on the server side, so it's only sent once all the other chunks were
+ * acknowledged, and its response is the result of the upload.
+ * The size of each chunk is decided by a {@link ChunkSizer} when the chunk is scheduled, so chunks of the same upload
+ * may differ in size.
+ */
+final class ChunkedUploader {
+    private static final String TAG = ChunkedUploader.class.getSimpleName();
+    private static final int MAX_THREADS = 8;
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final Uploader uploader;
+    private final int parallelism;
+    private final AcknowledgeListener acknowledgeListener;
+    private final Object lock = new Object();
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    private ChunkSizer chunkSizer;
+    private long offset;
+    private int acknowledgedPrefix;
+    private long bytesSent;
+
+    /**
+     * @param uploader    The uploader used to send each chunk.
+     * @param parallelism Maximum number of chunks to upload concurrently.
+     */
+    ChunkedUploader(Uploader uploader, int parallelism) {
+        this(uploader, parallelism, null);
+    }
+
+    /**
+     * @param uploader            The uploader used to send each chunk.
+     * @param parallelism         Maximum number of chunks to upload concurrently.
+     * @param acknowledgeListener Notified whenever the acknowledged offset advances, may be null.
+     */
+    ChunkedUploader(Uploader uploader, int parallelism, AcknowledgeListener acknowledgeListener) {
+        this.uploader = uploader;
+        this.parallelism = Math.max(1, parallelism);
+        this.acknowledgeListener = acknowledgeListener;
+    }
+
+    /**
+     * Upload the source in chunks of a fixed size. See {@link #upload(PositionalSource, String, Map, ChunkSizer, long, String, ProgressCallback)}.
+     */
+    Map upload(PositionalSource source, String fileName, Map<String, Object> options, int chunkSize, long offset, String uploadUniqueId, ProgressCallback progressCallback) throws IOException {
+        return upload(source, fileName, options, ChunkSizer.fixed(chunkSize), offset, uploadUniqueId, progressCallback);
+    }
+
+    /**
+     * Upload the source starting at the given offset. This call blocks until the upload is complete.
+     *
+     * @param source           The source to upload.
+     * @param fileName         The name of the uploaded file, used unless the options contain a "filename". May be null.
+     * @param options          Upload options, same as {@link Uploader#uploadLarge(Object, Map, int, long, String, ProgressCallback)}.
+     * @param chunkSizer       Decides the size of each chunk.
+     * @param offset           The position in the source to start from, used to resume a previous upload.
+     * @param uploadUniqueId   The unique id shared by all the chunks of this upload.
+     * @param progressCallback Callback for the aggregated progress of all the chunks.
+     * @return The result of the final chunk, which is the result of the upload.
+     */
+    Map upload(PositionalSource source, String fileName, Map<String, Object> options, ChunkSizer chunkSizer, long offset, String uploadUniqueId, ProgressCallback progressCallback) throws IOException {
+        long length = source.length();
+        if (fileName != null && !options.containsKey("filename")) {
+            // same as uploadLarge does for files, every chunk must carry the name or the server sees a file named "file"
+            options = new HashMap<>(options);
+            options.put("filename", fileName);
+        }
+
+        synchronized (lock) {
+            this.chunkSizer = chunkSizer;
+            this.offset = offset;
+            this.chunks.clear();
+            this.acknowledgedPrefix = 0;
+            this.bytesSent = offset;
+        }
+
+        Logger.d(TAG, String.format("Uploading %d bytes of upload %s, parallelism %d.", length - offset, uploadUniqueId, parallelism));
+
+        CompletionService<Chunk> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Chunk>> futures = new ArrayList<>();
+        Chunk finalChunk = null;
+        long nextStart = offset;
+        int inFlight = 0;
+
+        try {
+            while (true) {
+                while (finalChunk == null && inFlight < parallelism) {
+                    Chunk chunk = nextChunk(nextStart, length);
+                    nextStart = chunk.end;
+                    if (chunk.end == length) {
+                        finalChunk = chunk;
+                    } else {
+                        futures.add(completionService.submit(new ChunkTask(source, options, chunk, length, uploadUniqueId, progressCallback)));
+                        inFlight++;
+                    }
+                }
+
+                if (inFlight == 0) {
+                    break;
+                }
+
+                Future<Chunk> done = completionService.take();
+                inFlight--;
+                acknowledge(done.get());
+            }
+
+            // all the other chunks are acknowledged, send the final one to complete the upload:
+            Object contentDigest = options.get(UploaderStrategy.CONTENT_DIGEST_INSTANCE_OPTION);
+            if (contentDigest instanceof ContentDigest) {
+                // hash whatever the parallel chunks skipped, so the final chunk is hashed as it's sent:
+                ((ContentDigest) contentDigest).catchUp(source, finalChunk.start);
+            }
+            Map result = timedUploadChunk(source, options, finalChunk, length, uploadUniqueId, progressCallback);
+            acknowledge(finalChunk);
+            return result;
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Chunked upload interrupted.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        } finally {
+            for (Future<Chunk> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return The offset up to which all the chunks were acknowledged by the server. A resumed upload can start from here.
+     */
+    long getAcknowledgedOffset() {
+        synchronized (lock) {
+            return acknowledgedPrefix == 0 ? offset : chunks.get(acknowledgedPrefix - 1).end;
+        }
+    }
+
+    /**
+     * @return The size the next chunk would have, to be used when resuming this upload.
+     */
+    int getChunkSize() {
+        synchronized (lock) {
+            return chunkSizer.getChunkSize();
+        }
+    }
+
+    private Chunk nextChunk(long start, long length) {
+        synchronized (lock) {
+            Chunk chunk = new Chunk(start, Math.min(start + chunkSizer.getChunkSize(), length));
+            chunks.add(chunk);
+            return chunk;
+        }
+    }
+
+    private void acknowledge(Chunk chunk) {
+        synchronized (lock) {
+            chunk.acknowledged = true;
+            int previousPrefix = acknowledgedPrefix;
+            while (acknowledgedPrefix < chunks.size() && chunks.get(acknowledgedPrefix).acknowledged) {
+                acknowledgedPrefix++;
+            }
+
+            // notified under the lock so listeners always see the offset advancing
+            if (acknowledgeListener != null && acknowledgedPrefix > previousPrefix) {
+                acknowledgeListener.onAcknowledged(getAcknowledgedOffset(), chunkSizer.getChunkSize());
+            }
+        }
+    }
+
+    private Map timedUploadChunk(PositionalSource source, Map<String, Object> options, Chunk chunk, long length, String uploadUniqueId, ProgressCallback progressCallback) throws IOException {
+        long start = System.currentTimeMillis();
+        try {
+            Map result = uploadChunk(source, options, chunk, length, uploadUniqueId, progressCallback);
+            chunkSizer.onChunkUploaded(chunk.end - chunk.start, System.currentTimeMillis() - start);
+            return result;
+        } catch (IOException e) {
+            if (!(e instanceof InterruptedIOException)) {
+                chunkSizer.onChunkFailed();
+            }
+            throw e;
+        }
+    }
+
+    private Map uploadChunk(PositionalSource source, Map<String, Object> options, Chunk chunk, long length, String uploadUniqueId, ProgressCallback progressCallback) throws IOException {
+        Map<String, Object> params = uploader.buildUploadParams(options);
+        Map<String, Object> chunkOptions = new HashMap<>(options);
+        Map<String, String> extraHeaders = new HashMap<>();
+        extraHeaders.put("X-Unique-Upload-Id", uploadUniqueId);
+        extraHeaders.put("Content-Range", String.format(Locale.US, "bytes %d-%d/%d", chunk.start, chunk.end - 1, length));
+        chunkOptions.put("extra_headers", extraHeaders);
+
+        return uploader.callApi("upload", params, chunkOptions, new SourceRange(source, chunk.start, chunk.end - chunk.start),
+                progressCallback == null ? null : new ChunkProgressCallback(progressCallback, length));
+    }
+
+    /**
+     * Listener for the progress of the upload as acknowledged by the server.
+     */
+    interface AcknowledgeListener {
+        /**
+         * @param offset    The offset up to which all the chunks were acknowledged by the server.
+         * @param chunkSize The current chunk size of the upload.
+         */
+        void onAcknowledged(long offset, int chunkSize);
+    }
+
+    private static final class Chunk {
+        private final long start;
+        private final long end;
+        private boolean acknowledged;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Aggregates the progress of a single chunk into the progress of the entire upload.
+     */
+    private final class ChunkProgressCallback implements ProgressCallback {
+        private final ProgressCallback progressCallback;
+        private final long totalBytes;
+        private long chunkBytes;
+
+        ChunkProgressCallback(ProgressCallback progressCallback, long totalBytes) {
+            this.progressCallback = progressCallback;
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public void onProgress(long bytes, long totalBytes) {
+            synchronized (lock) {
+                bytesSent += bytes - chunkBytes;
+                chunkBytes = bytes;
+                progressCallback.onProgress(bytesSent, this.totalBytes);
+            }
+        }
+    }
+
+    private final class ChunkTask implements Callable<Chunk> {
+        private final PositionalSource source;
+        private final Map<String, Object> options;
+        private final Chunk chunk;
+        private final long length;
+        private final String uploadUniqueId;
+        private final ProgressCallback progressCallback;
+
+        ChunkTask(PositionalSource source, Map<String, Object> options, Chunk chunk, long length, String uploadUniqueId, ProgressCallback progressCallback) {
+            this.source = source;
+            this.options = options;
+            this.chunk = chunk;
+            this.length = length;
+            this.uploadUniqueId = uploadUniqueId;
+            this.progressCallback = progressCallback;
+        }
+
+        @Override
+        public Chunk call() throws IOException {
+            timedUploadChunk(source, options, chunk, length, uploadUniqueId, progressCallback);
+            return chunk;
+        }
+    }
+}
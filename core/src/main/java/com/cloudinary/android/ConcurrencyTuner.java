@@ -0,0 +1,169 @@
+package com.cloudinary.android;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adjusts the number of requests transferring at the same time between a lower and an upper bound, AIMD style:
+ * <ul>
+ * <li>The limit starts at a point that depends on the type of the network, and starts over when the network changes.</li>
+ * <li>While all the slots are in use, the limit grows by one every sample as long as this raises the aggregate
+ * throughput. An increase that did not raise it is taken back, and the next one is only tried a few samples later.</li>
+ * <li>When too many chunks fail, or the throughput drops while all the slots are in use, the limit is halved.</li>
+ * </ul>
+ * There's no timer, samples are taken by the upload threads calling {@link #maybeAdjust()}, at most once every
+ * {@link #SAMPLE_INTERVAL_NANOS}. The throughput and errors are taken from the cumulative counters of
+ * {@link UploadMetrics}.
+ */
+class ConcurrencyTuner {
+    private static final String TAG = ConcurrencyTuner.class.getSimpleName();
+    static final long SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // more than this share of failed chunks in a sample is treated as congestion
+    static final double MAX_ERROR_RATE = 0.2;
+    // an increase is kept only if it raised the throughput by at least this much
+    static final double MIN_THROUGHPUT_GAIN = 0.05;
+    // a drop of this much with all slots in use is treated as congestion
+    static final double MAX_THROUGHPUT_DROP = 0.1;
+    // samples to wait before trying to increase again, after an increase that did not pay off
+    static final int PROBE_HOLD_SAMPLES = 6;
+
+    private final UploadMetrics metrics;
+    private final Listener listener;
+    private volatile NetworkSignal networkSignal;
+    private volatile long nextSampleNanos;
+    private int minLimit;
+    private int maxLimit;
+    private int limit;
+    private NetworkSignal.NetworkType networkType;
+    private long lastBytes;
+    private long lastChunks;
+    private long lastFailedChunks;
+    private long lastSampleNanos;
+    private double lastThroughput;
+    private boolean increased;
+    private int holdSamples;
+
+    ConcurrencyTuner(UploadMetrics metrics, NetworkSignal networkSignal, int minLimit, int maxLimit, Listener listener) {
+        this.metrics = metrics;
+        this.networkSignal = networkSignal;
+        this.listener = listener;
+        this.minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = this.maxLimit;
+    }
+
+    /**
+     * Take a sample and adjust the limit if enough time passed since the previous one. Cheap enough to call on every
+     * progress update.
+     */
+    void maybeAdjust() {
+        long now = System.nanoTime();
+        if (now - nextSampleNanos >= 0) {
+            sample(now);
+        }
+    }
+
+    synchronized void setBounds(int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+        this.maxLimit = Math.max(1, maxLimit);
+        // start over from the new bounds on the next sample
+        this.networkType = null;
+        setLimit(limit, "bounds changed");
+    }
+
+    void setNetworkSignal(NetworkSignal networkSignal) {
+        this.networkSignal = networkSignal;
+    }
+
+    synchronized int getLimit() {
+        return limit;
+    }
+
+    synchronized void sample(long now) {
+        if (now - nextSampleNanos < 0) {
+            // another thread took this sample
+            return;
+        }
+
+        nextSampleNanos = now + SAMPLE_INTERVAL_NANOS;
+        long bytes = metrics.getUploadedBytes().get();
+        long chunks = metrics.getChunkLatency().snapshot().getCount();
+        long failedChunks = metrics.getFailedChunks().get();
+        long elapsed = now - lastSampleNanos;
+        long deltaBytes = bytes - lastBytes;
+        long deltaChunks = chunks - lastChunks;
+        long deltaFailedChunks = failedChunks - lastFailedChunks;
+        lastBytes = bytes;
+        lastChunks = chunks;
+        lastFailedChunks = failedChunks;
+        lastSampleNanos = now;
+
+        NetworkSignal.NetworkType currentNetworkType = networkSignal.getNetworkType();
+        if (currentNetworkType != networkType) {
+            networkType = currentNetworkType;
+            reset();
+            setLimit(initialLimit(currentNetworkType), "network is " + currentNetworkType);
+            return;
+        }
+
+        if (deltaChunks + deltaFailedChunks == 0 || elapsed <= 0) {
+            // idle, nothing to learn from this sample
+            reset();
+            return;
+        }
+
+        double throughput = deltaBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        double errorRate = (double) deltaFailedChunks / (deltaChunks + deltaFailedChunks);
+        boolean saturated = metrics.getInFlightRequests().get() >= limit;
+        boolean wasIncreased = increased;
+        increased = false;
+        if (holdSamples > 0) {
+            holdSamples--;
+        }
+
+        if (errorRate > MAX_ERROR_RATE) {
+            setLimit(limit / 2, String.format(Locale.US, "%.0f%% of the chunks failed", errorRate * 100));
+        } else if (saturated && lastThroughput > 0 && throughput < lastThroughput * (1 - MAX_THROUGHPUT_DROP)) {
+            setLimit(limit / 2, "throughput dropped");
+        } else if (wasIncreased && throughput < lastThroughput * (1 + MIN_THROUGHPUT_GAIN)) {
+            holdSamples = PROBE_HOLD_SAMPLES;
+            setLimit(limit - 1, "the last increase did not raise the throughput");
+        } else if (saturated && holdSamples == 0 && limit < maxLimit) {
+            increased = true;
+            setLimit(limit + 1, "all slots are in use");
+        }
+
+        lastThroughput = throughput;
+    }
+
+    private void reset() {
+        lastThroughput = 0;
+        increased = false;
+        holdSamples = 0;
+    }
+
+    private int initialLimit(NetworkSignal.NetworkType networkType) {
+        switch (networkType) {
+            case SLOW_CELLULAR:
+            case NONE:
+                return minLimit;
+            case FAST_CELLULAR:
+                return (minLimit + maxLimit + 1) / 2;
+            default:
+                return maxLimit;
+        }
+    }
+
+    private void setLimit(int newLimit, String reason) {
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        if (newLimit != limit) {
+            Logger.d(TAG, String.format("Concurrent requests limit changed from %d to %d, %s.", limit, newLimit, reason));
+            limit = newLimit;
+            listener.onLimitChanged(newLimit);
+        }
+    }
+
+    interface Listener {
+        void onLimitChanged(int limit);
+    }
+}
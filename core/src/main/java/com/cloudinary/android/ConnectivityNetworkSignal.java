@@ -0,0 +1,57 @@
+package com.cloudinary.android;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.telephony.TelephonyManager;
+
+/**
+ * {@link NetworkSignal} backed by the android connectivity service.
+ */
+class ConnectivityNetworkSignal implements NetworkSignal {
+    private static final String TAG = ConnectivityNetworkSignal.class.getSimpleName();
+    // TelephonyManager.NETWORK_TYPE_NR, only defined from api 29
+    private static final int NETWORK_TYPE_NR = 20;
+
+    private final Context context;
+
+    ConnectivityNetworkSignal(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public NetworkType getNetworkType() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return NetworkType.UNKNOWN;
+        }
+
+        NetworkInfo info;
+        try {
+            // NetworkCapabilities can't tell the cellular generation apart and needs api 23, NetworkInfo is good enough here
+            info = connectivityManager.getActiveNetworkInfo();
+        } catch (SecurityException e) {
+            Logger.d(TAG, "Missing the ACCESS_NETWORK_STATE permission, network type is unknown.");
+            return NetworkType.UNKNOWN;
+        }
+
+        if (info == null || !info.isConnected()) {
+            return NetworkType.NONE;
+        }
+
+        switch (info.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+            case ConnectivityManager.TYPE_ETHERNET:
+                return NetworkType.WIFI;
+            case ConnectivityManager.TYPE_MOBILE:
+                return isFastCellular(info.getSubtype()) ? NetworkType.FAST_CELLULAR : NetworkType.SLOW_CELLULAR;
+            default:
+                return NetworkType.UNKNOWN;
+        }
+    }
+
+    private static boolean isFastCellular(int subtype) {
+        return subtype == TelephonyManager.NETWORK_TYPE_LTE || subtype == NETWORK_TYPE_NR;
+    }
+}
@@ -0,0 +1,164 @@
+package com.cloudinary.android;
+
+import com.cloudinary.android.payload.PositionalSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Computes digests of an uploaded payload from the bytes as they are written to the request body, so the payload is
+ * not read a second time just for hashing.
+ * Bytes are hashed by their position in the payload and must be consumed in order: bytes beyond the hashed prefix
+ * (e.g. a chunk sent in parallel with a preceding one) are skipped, and the gap is later filled by reading it from
+ * the payload using {@link #catchUp(PositionalSource, long)}.
+ */
+final class ContentDigest {
+    /**
+     * Upload option holding a comma separated list of the digests to compute, see {@link UploadRequest#contentDigest(String...)}.
+     */
+    static final String OPTION = "content_digest";
+    static final String SHA1 = "sha1";
+    static final String SHA256 = "sha256";
+    static final String MD5 = "md5";
+    private static final String RESULT_KEY_PREFIX = "content_";
+    private static final int CATCH_UP_BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String[] names;
+    private final MessageDigest[] digests;
+    private long position;
+
+    private ContentDigest(String[] names) {
+        this.names = names;
+        this.digests = new MessageDigest[names.length];
+        for (int i = 0; i < names.length; i++) {
+            digests[i] = newMessageDigest(names[i]);
+        }
+    }
+
+    /**
+     * @param option The value of the {@link #OPTION} upload option.
+     * @return A digest computing the requested algorithms, or null if none were requested.
+     * @throws IllegalArgumentException If an algorithm is not supported.
+     */
+    static ContentDigest fromOption(Object option) {
+        String[] names = parseOption(option);
+        return names.length == 0 ? null : new ContentDigest(names);
+    }
+
+    static String[] parseOption(Object option) {
+        if (option == null || option.toString().trim().isEmpty()) {
+            return new String[0];
+        }
+
+        String[] names = option.toString().split(",");
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim().toLowerCase(Locale.US);
+            newMessageDigest(names[i]);
+        }
+
+        return names;
+    }
+
+    /**
+     * @return The number of leading bytes of the payload that were hashed so far.
+     */
+    synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * Hashes the given bytes of the payload, skipping what was already hashed. Bytes starting beyond the hashed prefix
+     * are ignored.
+     *
+     * @param position The position of the bytes in the payload.
+     */
+    synchronized void update(long position, byte[] buffer, int offset, int length) {
+        long end = position + length;
+        if (position > this.position || end <= this.position) {
+            return;
+        }
+
+        int skip = (int) (this.position - position);
+        for (MessageDigest digest : digests) {
+            digest.update(buffer, offset + skip, length - skip);
+        }
+
+        this.position = end;
+    }
+
+    /**
+     * Hashes the payload from the current position up to the given position, reading it from the source.
+     */
+    synchronized void catchUp(PositionalSource source, long upTo) throws IOException {
+        if (position >= upTo) {
+            return;
+        }
+
+        byte[] buffer = new byte[CATCH_UP_BUFFER_SIZE];
+        while (position < upTo) {
+            int read = source.read(position, buffer, 0, (int) Math.min(buffer.length, upTo - position));
+            if (read == -1) {
+                throw new EOFException(String.format("Expected %d bytes but the source ended after %d", upTo, position));
+            }
+
+            update(position, buffer, 0, read);
+        }
+    }
+
+    /**
+     * Adds the hex encoded digests to the upload result, under "content_" followed by the algorithm name
+     * (e.g. "content_sha256"). This completes the digests, no more bytes can be hashed afterwards.
+     */
+    synchronized void addToResult(Map<String, Object> result) {
+        for (int i = 0; i < names.length; i++) {
+            result.put(RESULT_KEY_PREFIX + names[i], toHex(digests[i].digest()));
+        }
+    }
+
+    /**
+     * @return The hex encoded SHA-256 digest of the entire source.
+     */
+    static String sha256(PositionalSource source) throws IOException {
+        ContentDigest contentDigest = new ContentDigest(new String[]{SHA256});
+        contentDigest.catchUp(source, source.length());
+        return toHex(contentDigest.digests[0].digest());
+    }
+
+    private static MessageDigest newMessageDigest(String name) {
+        String algorithm;
+        switch (name) {
+            case SHA1:
+                algorithm = "SHA-1";
+                break;
+            case SHA256:
+                algorithm = "SHA-256";
+                break;
+            case MD5:
+                algorithm = "MD5";
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported content digest: " + name);
+        }
+
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported content digest: " + name, e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+
+        return new String(chars);
+    }
+}
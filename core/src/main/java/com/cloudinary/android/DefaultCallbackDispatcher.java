@@ -7,6 +7,7 @@ import android.content.pm.PackageManager;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import androidx.core.util.Pools;
 
 import com.cloudinary.android.callback.ErrorInfo;
@@ -17,10 +18,14 @@ import com.cloudinary.android.callback.UploadStatus;
 import com.cloudinary.utils.StringUtils;
 
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * {@inheritDoc}
@@ -28,24 +33,34 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 class DefaultCallbackDispatcher implements CallbackDispatcher {
     private static final int START_MESSAGE = 0;
     private static final int ERROR_MESSAGE = 1;
-    private static final int PROGRESS_MESSAGE = 2;
     private static final int RESCHEDULE_MESSAGE = 3;
     private static final int SUCCESS_MESSAGE = 4;
 
     private static final String TAG = "DefaultCallbackDispatcher";
 
-    private final Map<Integer, UploadCallbackWrapper> callbackRegistry;
-    private final Map<String, UploadResult> pendingResults;
+    // Callbacks of all requests, and callbacks of specific requests indexed by request id. Both are copy-on-write so
+    // dispatching, which happens far more often than registering, only visits the matching callbacks and takes no lock.
+    private final CopyOnWriteArrayList<UploadCallbackWrapper> globalCallbacks;
+    private final ConcurrentMap<String, CopyOnWriteArrayList<UploadCallbackWrapper>> requestCallbacks;
+    // The request ids each request specific callback is registered for, to unregister it. Guarded by this.
+    private final Map<UploadCallback, Set<String>> callbackRequestIds;
+    private final PendingResultStore pendingResults;
     private Class<?> listenerServiceClass = null;
-    private ReentrantReadWriteLock readWriteLock;
     private Handler handler;
-    private boolean isListenerServiceAlreadyRegistered = false;
+    private volatile boolean isListenerServiceAlreadyRegistered = false;
+    private volatile long minProgressIntervalMillis = 0;
 
     DefaultCallbackDispatcher(Context context) {
-        callbackRegistry = new ConcurrentHashMap<>();
-        pendingResults = new ConcurrentHashMap<>();
+        this(context, new UploadMetrics());
+    }
+
+    DefaultCallbackDispatcher(Context context, UploadMetrics metrics) {
+        globalCallbacks = new CopyOnWriteArrayList<>();
+        requestCallbacks = new ConcurrentHashMap<>();
+        callbackRequestIds = new IdentityHashMap<>();
         initListenerClass(context);
-        readWriteLock = new ReentrantReadWriteLock();
+        // results are only worth saving on disk when a listener service is going to fetch them
+        pendingResults = new PendingResultStore(listenerServiceClass != null ? context : null, metrics);
 
         // Main thread handler for all callback calls
         handler = new Handler(Looper.getMainLooper()) {
@@ -53,55 +68,73 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
             public void handleMessage(Message msg) {
                 super.handleMessage(msg);
 
-                CallbackMessage callbackMessage = (CallbackMessage) msg.obj;
-                String requestId = callbackMessage.requestId;
-                switch (msg.what) {
-                    case START_MESSAGE:
-                        callbackMessage.callback.onStart(requestId);
-                        break;
-                    case ERROR_MESSAGE:
-                        callbackMessage.callback.onError(requestId, callbackMessage.error);
-                        break;
-                    case PROGRESS_MESSAGE:
-                        callbackMessage.callback.onProgress(requestId, callbackMessage.bytes, callbackMessage.totalBytes);
-                        break;
-                    case RESCHEDULE_MESSAGE:
-                        callbackMessage.callback.onReschedule(requestId, callbackMessage.error);
-                        break;
-                    case SUCCESS_MESSAGE:
-                        callbackMessage.callback.onSuccess(requestId, callbackMessage.resultData);
-                        break;
-                }
-
-                if (msg.what != PROGRESS_MESSAGE) {
-                    Logger.d(TAG, String.format("Dispatching callback for request %s. Type: %d", requestId, msg.what));
-                }
-
-                callbackMessage.recycle();
+                deliver(msg.what, (CallbackMessage) msg.obj);
             }
         };
     }
 
+    private static void deliver(int what, CallbackMessage callbackMessage) {
+        String requestId = callbackMessage.requestId;
+        switch (what) {
+            case START_MESSAGE:
+                callbackMessage.callback.onStart(requestId);
+                break;
+            case ERROR_MESSAGE:
+                callbackMessage.callback.onError(requestId, callbackMessage.error);
+                break;
+            case RESCHEDULE_MESSAGE:
+                callbackMessage.callback.onReschedule(requestId, callbackMessage.error);
+                break;
+            case SUCCESS_MESSAGE:
+                callbackMessage.callback.onSuccess(requestId, callbackMessage.resultData);
+                break;
+        }
+
+        Logger.d(TAG, String.format("Dispatching callback for request %s. Type: %d", requestId, what));
+        callbackMessage.recycle();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized void registerCallback(String requestId, UploadCallback callback) {
-        readWriteLock.writeLock().lock();
-        try {
-            if (callback != null) {
-                Logger.d(TAG, String.format("Registered callback %s", callback.getClass().getSimpleName()));
-                if (callback instanceof ListenerService) {
-                    Logger.d(TAG, "Listener service registered.");
-                    isListenerServiceAlreadyRegistered = true;
-                }
-                int callbackId = System.identityHashCode(callback);
-                UploadCallbackWrapper uploadCallbackWrapper = new UploadCallbackWrapper(callback);
-                uploadCallbackWrapper.addRequestId(requestId);
-                callbackRegistry.put(callbackId, uploadCallbackWrapper);
+    public void registerCallback(String requestId, UploadCallback callback) {
+        registerCallback(requestId, callback, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void registerCallback(String requestId, UploadCallback callback, Executor executor) {
+        if (callback != null) {
+            Logger.d(TAG, String.format("Registered callback %s", callback.getClass().getSimpleName()));
+            if (callback instanceof ListenerService) {
+                Logger.d(TAG, "Listener service registered.");
+                isListenerServiceAlreadyRegistered = true;
             }
-        } finally {
-            readWriteLock.writeLock().unlock();
+
+            UploadCallbackWrapper uploadCallbackWrapper = new UploadCallbackWrapper(callback, executor);
+            if (globalCallbacks.contains(uploadCallbackWrapper)) {
+                // already receives the events of all requests
+                return;
+            }
+
+            CopyOnWriteArrayList<UploadCallbackWrapper> callbacks = requestCallbacks.get(requestId);
+            if (callbacks == null) {
+                callbacks = new CopyOnWriteArrayList<>();
+                requestCallbacks.put(requestId, callbacks);
+            }
+            // registering again replaces the executor
+            callbacks.remove(uploadCallbackWrapper);
+            callbacks.add(uploadCallbackWrapper);
+
+            Set<String> requestIds = callbackRequestIds.get(callback);
+            if (requestIds == null) {
+                requestIds = new HashSet<>();
+                callbackRequestIds.put(callback, requestIds);
+            }
+            requestIds.add(requestId);
         }
     }
 
@@ -109,19 +142,28 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
      * {@inheritDoc}
      */
     @Override
-    public synchronized void registerCallback(UploadCallback callback) {
-        readWriteLock.writeLock().lock();
-        try {
-            if (callback != null) {
-                Logger.d(TAG, String.format("Registered callback %s", callback.getClass().getSimpleName()));
-                if (callback instanceof ListenerService) {
-                    Logger.d(TAG, "Listener service registered.");
-                    isListenerServiceAlreadyRegistered = true;
-                }
-                callbackRegistry.put(System.identityHashCode(callback), new UploadCallbackWrapper(callback));
+    public void registerCallback(UploadCallback callback) {
+        registerCallback(callback, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void registerCallback(UploadCallback callback, Executor executor) {
+        if (callback != null) {
+            Logger.d(TAG, String.format("Registered callback %s", callback.getClass().getSimpleName()));
+            if (callback instanceof ListenerService) {
+                Logger.d(TAG, "Listener service registered.");
+                isListenerServiceAlreadyRegistered = true;
             }
-        } finally {
-            readWriteLock.writeLock().unlock();
+
+            // the events of its specific requests are received as part of all requests from now on
+            removeRequestCallbacks(callback);
+            UploadCallbackWrapper uploadCallbackWrapper = new UploadCallbackWrapper(callback, executor);
+            // registering again replaces the executor
+            globalCallbacks.remove(uploadCallbackWrapper);
+            globalCallbacks.add(uploadCallbackWrapper);
         }
     }
 
@@ -136,7 +178,24 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
                 Logger.d(TAG, "Listener service unregistered.");
                 isListenerServiceAlreadyRegistered = false;
             }
-            callbackRegistry.remove(System.identityHashCode(callback));
+            globalCallbacks.remove(new UploadCallbackWrapper(callback, null));
+            removeRequestCallbacks(callback);
+        }
+    }
+
+    private void removeRequestCallbacks(UploadCallback callback) {
+        Set<String> requestIds = callbackRequestIds.remove(callback);
+        if (requestIds != null) {
+            UploadCallbackWrapper uploadCallbackWrapper = new UploadCallbackWrapper(callback, null);
+            for (String requestId : requestIds) {
+                CopyOnWriteArrayList<UploadCallbackWrapper> callbacks = requestCallbacks.get(requestId);
+                if (callbacks != null) {
+                    callbacks.remove(uploadCallbackWrapper);
+                    if (callbacks.isEmpty()) {
+                        requestCallbacks.remove(requestId);
+                    }
+                }
+            }
         }
     }
 
@@ -184,10 +243,26 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
      */
     @Override
     public void dispatchProgress(String requestId, long bytes, long totalBytes) {
-        CallbackMessage callbackMessage = CallbackMessage.obtain();
-        callbackMessage.bytes = bytes;
-        callbackMessage.totalBytes = totalBytes;
-        dispatchMessage(requestId, PROGRESS_MESSAGE, callbackMessage);
+        // progress is not queued as messages, only the latest value per request and callback is kept until it's
+        // delivered, so a busy main thread never gets a backlog of stale progress updates
+        for (UploadCallbackWrapper wrapper : globalCallbacks) {
+            wrapper.progressOf(requestId).update(bytes, totalBytes);
+        }
+
+        CopyOnWriteArrayList<UploadCallbackWrapper> callbacks = requestCallbacks.get(requestId);
+        if (callbacks != null) {
+            for (UploadCallbackWrapper wrapper : callbacks) {
+                wrapper.progressOf(requestId).update(bytes, totalBytes);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMinProgressIntervalMillis(long minProgressIntervalMillis) {
+        this.minProgressIntervalMillis = minProgressIntervalMillis;
     }
 
     /**
@@ -227,25 +302,64 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
      */
     @Override
     public UploadResult popPendingResult(String requestId) {
-        return pendingResults.remove(requestId);
+        return pendingResults.pop(requestId);
     }
 
     private void dispatchMessage(String requestId, int what, CallbackMessage callbackMessage) {
-        readWriteLock.readLock().lock();
         try {
-            for (UploadCallbackWrapper wrapper : callbackRegistry.values()) {
-                if (wrapper != null && wrapper.matches(requestId)) {
-                    // for each registered callback we send a message (different instance for each)
-                    CallbackMessage copy = CallbackMessage.obtain(callbackMessage);
-                    copy.callback = wrapper.callback;
-                    copy.requestId = requestId;
-                    handler.obtainMessage(what, copy).sendToTarget();
+            for (UploadCallbackWrapper wrapper : globalCallbacks) {
+                flushProgress(requestId, what, wrapper);
+                postMessage(requestId, what, callbackMessage, wrapper);
+            }
+
+            CopyOnWriteArrayList<UploadCallbackWrapper> callbacks = requestCallbacks.get(requestId);
+            if (callbacks != null) {
+                for (UploadCallbackWrapper wrapper : callbacks) {
+                    flushProgress(requestId, what, wrapper);
+                    postMessage(requestId, what, callbackMessage, wrapper);
                 }
             }
         } finally {
             // recycle original message (not used by handler)
             callbackMessage.recycle();
-            readWriteLock.readLock().unlock();
+        }
+    }
+
+    private void flushProgress(String requestId, int what, UploadCallbackWrapper wrapper) {
+        if (what != START_MESSAGE) {
+            // the attempt is over, deliver the pending progress (if any) right away so it's not delivered after the result
+            PendingProgress pendingProgress = wrapper.pendingProgress.remove(requestId);
+            if (pendingProgress != null) {
+                pendingProgress.flush();
+            }
+        }
+    }
+
+    private void postMessage(String requestId, int what, CallbackMessage callbackMessage, UploadCallbackWrapper wrapper) {
+        // for each registered callback we send a message (different instance for each)
+        final CallbackMessage copy = CallbackMessage.obtain(callbackMessage);
+        copy.callback = wrapper.callback;
+        copy.requestId = requestId;
+        if (wrapper.executor == null) {
+            handler.obtainMessage(what, copy).sendToTarget();
+        } else {
+            final int messageWhat = what;
+            execute(wrapper.executor, new Runnable() {
+                @Override
+                public void run() {
+                    deliver(messageWhat, copy);
+                }
+            });
+        }
+    }
+
+    private static boolean execute(Executor executor, Runnable runnable) {
+        try {
+            executor.execute(runnable);
+            return true;
+        } catch (RejectedExecutionException e) {
+            Logger.e(TAG, "Callback executor rejected an event, it is dropped.", e);
+            return false;
         }
     }
 
@@ -268,21 +382,153 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
         }
     }
 
-    private final static class UploadCallbackWrapper {
+    /**
+     * Compares callbacks by identity, callbacks may define equality for their own purposes.
+     */
+    private final class UploadCallbackWrapper {
         private final UploadCallback callback;
-        private final Set<String> requestIds;
+        // null for the main thread
+        private final Executor executor;
+        private final ConcurrentMap<String, PendingProgress> pendingProgress = new ConcurrentHashMap<>();
 
-        private UploadCallbackWrapper(UploadCallback callback) {
+        private UploadCallbackWrapper(UploadCallback callback, Executor executor) {
             this.callback = callback;
-            requestIds = new HashSet<>();
+            this.executor = executor;
         }
 
-        private void addRequestId(String requestId) {
-            requestIds.add(requestId);
+        PendingProgress progressOf(String requestId) {
+            PendingProgress progress = pendingProgress.get(requestId);
+            if (progress == null) {
+                PendingProgress newProgress = new PendingProgress(callback, executor, requestId);
+                progress = pendingProgress.putIfAbsent(requestId, newProgress);
+                if (progress == null) {
+                    progress = newProgress;
+                }
+            }
+
+            return progress;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof UploadCallbackWrapper && ((UploadCallbackWrapper) o).callback == callback;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(callback);
+        }
+    }
+
+    /**
+     * The latest progress of a request that was not delivered to a callback yet. At most one delivery is posted at a
+     * time, updates that arrive before it runs replace the values it delivers. Deliveries are always timed by the
+     * main thread handler, and handed to the executor of the callback (if any) when due.
+     */
+    private final class PendingProgress implements Runnable {
+        private final UploadCallback callback;
+        private final Executor executor;
+        private final String requestId;
+        private final Runnable delayedHandOff = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (PendingProgress.this) {
+                    if (!delayed) {
+                        // flushed in the meantime
+                        return;
+                    }
+                    delayed = false;
+                }
+                handOff();
+            }
+        };
+        private long bytes;
+        private long totalBytes;
+        private boolean posted;
+        // posted to the handler with a delay, so it can still be taken back
+        private boolean delayed;
+        private long lastDeliveryMillis;
+
+        PendingProgress(UploadCallback callback, Executor executor, String requestId) {
+            this.callback = callback;
+            this.executor = executor;
+            this.requestId = requestId;
         }
 
-        boolean matches(String requestId) {
-            return requestIds.isEmpty() || requestIds.contains(requestId);
+        void update(long bytes, long totalBytes) {
+            boolean handOffNow;
+            synchronized (this) {
+                this.bytes = bytes;
+                this.totalBytes = totalBytes;
+                if (posted) {
+                    return;
+                }
+                posted = true;
+                handOffNow = schedule(lastDeliveryMillis + minProgressIntervalMillis - SystemClock.uptimeMillis());
+            }
+
+            if (handOffNow) {
+                handOff();
+            }
+        }
+
+        void flush() {
+            boolean handOffNow;
+            synchronized (this) {
+                if (!posted || (executor != null && !delayed)) {
+                    // nothing pending, or already handed to the executor
+                    return;
+                }
+                handler.removeCallbacks(executor == null ? this : delayedHandOff);
+                handOffNow = schedule(0);
+            }
+
+            if (handOffNow) {
+                handOff();
+            }
+        }
+
+        /**
+         * @return True if the delivery is due now and should be handed to the executor, outside of the lock since a
+         * direct executor delivers it on the spot.
+         */
+        private boolean schedule(long delay) {
+            delayed = delay > 0;
+            if (executor == null) {
+                handler.postDelayed(this, Math.max(0, delay));
+                return false;
+            } else if (delayed) {
+                handler.postDelayed(delayedHandOff, delay);
+                return false;
+            }
+            return true;
+        }
+
+        private void handOff() {
+            if (!execute(executor, this)) {
+                synchronized (this) {
+                    posted = false;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            long bytes;
+            long totalBytes;
+            synchronized (this) {
+                if (!posted) {
+                    // already delivered by a flushed copy of this delivery
+                    return;
+                }
+                bytes = this.bytes;
+                totalBytes = this.totalBytes;
+                posted = false;
+                delayed = false;
+                lastDeliveryMillis = SystemClock.uptimeMillis();
+            }
+
+            callback.onProgress(requestId, bytes, totalBytes);
         }
     }
 
@@ -290,8 +536,6 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
         private static final Pools.SynchronizedPool<CallbackMessage> sPool = new Pools.SynchronizedPool<>(100);
         private UploadCallback callback;
         private String requestId;
-        private long bytes;
-        private long totalBytes;
         private ErrorInfo error;
         private Map resultData;
 
@@ -304,8 +548,6 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
             CallbackMessage instance = obtain();
             instance.requestId = callbackMessage.requestId;
             instance.callback = callbackMessage.callback;
-            instance.bytes = callbackMessage.bytes;
-            instance.totalBytes = callbackMessage.totalBytes;
             instance.error = callbackMessage.error;
             instance.resultData = callbackMessage.resultData;
             return instance;
@@ -314,8 +556,6 @@ class DefaultCallbackDispatcher implements CallbackDispatcher {
         void recycle() {
             callback = null;
             requestId = null;
-            bytes = -1;
-            totalBytes = -1;
             error = null;
             resultData = null;
             sPool.release(this);
@@ -2,49 +2,104 @@ package com.cloudinary.android;
 
 import android.content.Context;
 
+import com.cloudinary.android.payload.ByteArrayPayload;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Runs immediate requests on a small pool of threads. Waiting requests are ordered by {@link UploadRequest#getPriority()},
+ * aged by the time they are waiting so low priority requests are not starved: each priority level is worth
+ * {@link #PRIORITY_AGING_MILLIS} of waiting. The number of waiting requests is bounded, see {@link #runRequest(Context, UploadRequest)}.
+ */
 public class DefaultImmediateRequestsRunner implements ImmediateRequestsRunner {
     private static final String TAG = "DefaultImmediateRequestsRunner";
+    static final int DEFAULT_THREADS = 4;
+    static final int DEFAULT_MAX_QUEUED_REQUESTS = 100;
+    static final long PRIORITY_AGING_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
     protected static final Map<String, Future> tasks = new ConcurrentHashMap<>();
-    private final ExecutorService executor;
+    private final ThreadPoolExecutor executor;
     private final RequestProcessor requestProcessor;
+    private final int maxQueuedRequests;
+    private final AtomicLong sequence = new AtomicLong();
 
     DefaultImmediateRequestsRunner(RequestProcessor requestProcessor) {
-        this.executor = new ThreadPoolExecutor(4, 4,
+        this(requestProcessor, DEFAULT_THREADS, DEFAULT_MAX_QUEUED_REQUESTS);
+    }
+
+    DefaultImmediateRequestsRunner(RequestProcessor requestProcessor, int threads, int maxQueuedRequests) {
+        this.executor = new ThreadPoolExecutor(threads, threads,
                 60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<Runnable>());
+                new PriorityBlockingQueue<Runnable>());
 
         this.requestProcessor = requestProcessor;
+        this.maxQueuedRequests = maxQueuedRequests;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RejectedExecutionException If the maximum number of requests is already waiting to run.
+     */
     @Override
     public synchronized void runRequest(final Context context, final UploadRequest uploadRequest) {
+        final String requestId = uploadRequest.getRequestId();
+        if (executor.getQueue().size() >= maxQueuedRequests) {
+            throw new RejectedExecutionException(String.format("Cannot run request %s, %d requests are already waiting.", requestId, maxQueuedRequests));
+        }
+
         final ImmediateRequestParams params = new ImmediateRequestParams();
         uploadRequest.populateParamsFromFields(params);
 
         // mark as an immediate tasks:
         params.putBoolean("immediate", true);
 
-        final String requestId = uploadRequest.getRequestId();
-        tasks.put(requestId, executor.submit(new Runnable() {
+        final long enqueueNanos = System.nanoTime();
+        PrioritizedTask task = new PrioritizedTask(new Runnable() {
             @Override
             public void run() {
                 try {
+                    MediaManager.get().getMetrics().getImmediateQueueWait().record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueueNanos));
                     requestProcessor.processRequest(context, params);
                 } finally {
                     tasks.remove(requestId);
                 }
             }
-        }));
+        }, rank(enqueueNanos, uploadRequest.getPriority()), sequence.getAndIncrement());
+
+        tasks.put(requestId, task);
+        executor.execute(task);
+    }
+
+    /**
+     * Change the number of requests running at the same time. Requests that are already running are not interrupted.
+     */
+    void setThreads(int threads) {
+        synchronized (executor) {
+            threads = Math.max(1, threads);
+            // the core size can never be larger than the max size
+            if (threads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    static long rank(long enqueueNanos, int priority) {
+        // lower ranks run first - a higher priority is the same as having been enqueued earlier
+        return TimeUnit.NANOSECONDS.toMillis(enqueueNanos) - priority * PRIORITY_AGING_MILLIS;
     }
 
     @Override
@@ -52,6 +107,11 @@ public class DefaultImmediateRequestsRunner implements ImmediateRequestsRunner {
         Future task = tasks.remove(requestId);
         if (task != null) {
             task.cancel(true);
+            // don't keep a cancelled task in the queue, taking up room
+            if (executor.remove((Runnable) task)) {
+                // it never ran, nothing else is going to release its payload
+                ByteArrayPayload.release(null, requestId);
+            }
             return true;
         }
 
@@ -60,8 +120,11 @@ public class DefaultImmediateRequestsRunner implements ImmediateRequestsRunner {
 
     @Override
     public synchronized int cancelAllRequests() {
-        for (Future task : tasks.values()) {
-            task.cancel(true);
+        for (Map.Entry<String, Future> entry : tasks.entrySet()) {
+            entry.getValue().cancel(true);
+            if (executor.remove((Runnable) entry.getValue())) {
+                ByteArrayPayload.release(null, entry.getKey());
+            }
         }
 
         int size = tasks.size();
@@ -69,6 +132,27 @@ public class DefaultImmediateRequestsRunner implements ImmediateRequestsRunner {
         return size;
     }
 
+    private static final class PrioritizedTask extends FutureTask<Void> implements Comparable<PrioritizedTask> {
+        private final long rank;
+        private final long sequence;
+
+        PrioritizedTask(Runnable runnable, long rank, long sequence) {
+            super(runnable, null);
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (rank != other.rank) {
+                return rank < other.rank ? -1 : 1;
+            }
+
+            // same rank, first come first served
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
     private static final class ImmediateRequestParams implements RequestParams {
         private final Map<String, Object> map = new HashMap<>();
 
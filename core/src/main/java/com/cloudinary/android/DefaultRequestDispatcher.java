@@ -4,9 +4,9 @@ import android.content.Context;
 
 import com.cloudinary.android.callback.ErrorInfo;
 
-import java.security.SecureRandom;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * {@inheritDoc}
@@ -14,7 +14,6 @@ import java.util.Set;
 class DefaultRequestDispatcher implements RequestDispatcher {
     private static final String TAG = DefaultRequestDispatcher.class.getSimpleName();
 
-    private final SecureRandom rand = new SecureRandom();
     private final BackgroundRequestStrategy strategy;
     private final ImmediateRequestsRunner immediateRequestsRunner;
     private final Set<String> abortedRequestIds = new HashSet<>();
@@ -33,16 +32,8 @@ class DefaultRequestDispatcher implements RequestDispatcher {
     public final String dispatch(UploadRequest request) {
         String requestId = request.getRequestId();
 
-        // If we are at max capacity and the request is not urgent defer this request by [10-20] minutes.
-        // Requests will be started once there's more room
-        int totalCount = strategy.getPendingImmediateJobsCount() + strategy.getRunningJobsCount();
-
-        if (!request.getTimeWindow().isImmediate() && totalCount >= MediaManager.get().getGlobalUploadPolicy().getMaxConcurrentRequests()) {
-            int minutes = 10 + rand.nextInt(10);
-            request.defferByMinutes(minutes);
-            Logger.d(TAG, String.format("Request %s deferred by %d minutes.", requestId, minutes));
-        }
-
+        // Requests over the concurrency limit are not deferred here, the processor reschedules them when they start
+        // and there's no free slot (see AdmissionController).
         Logger.d(TAG, String.format("Dispatching Request %s, scheduled start in %d minutes.", requestId, request.getTimeWindow().getMinLatencyOffsetMillis() / 60000));
 
         synchronized (cancellationLock) {
@@ -51,6 +42,8 @@ class DefaultRequestDispatcher implements RequestDispatcher {
                 return requestId;
             }
 
+            // marked queued first, the strategy may start the request (and dequeue it) before doDispatch returns
+            MediaManager.get().getMetrics().requestQueued(requestId);
             strategy.doDispatch(request);
         }
 
@@ -66,7 +59,15 @@ class DefaultRequestDispatcher implements RequestDispatcher {
                 return requestId;
             }
 
-            immediateRequestsRunner.runRequest(context, request);
+            MediaManager.get().getMetrics().requestQueued(requestId);
+            try {
+                immediateRequestsRunner.runRequest(context, request);
+            } catch (RejectedExecutionException e) {
+                // too many requests are waiting to run immediately, run this one in the background instead of dropping it
+                Logger.d(TAG, String.format("Request %s overflowed to the background: %s", requestId, e.getMessage()));
+                MediaManager.get().getMetrics().getOverflowedRequests().increment();
+                strategy.doDispatch(request);
+            }
         }
 
         return requestId;
@@ -93,7 +94,7 @@ class DefaultRequestDispatcher implements RequestDispatcher {
      */
     @Override
     public void queueRoomFreed() {
-        int room = MediaManager.get().getGlobalUploadPolicy().getMaxConcurrentRequests() - strategy.getPendingImmediateJobsCount() - strategy.getRunningJobsCount();
+        int room = MediaManager.get().getAdmissionController().getAvailableSlots();
         Logger.d(TAG, String.format("queueRoomFreed called, there's room for %d requests.", room));
         if (room > 0) {
             strategy.executeRequestsNow(room);
@@ -7,26 +7,30 @@ import com.cloudinary.Cloudinary;
 import com.cloudinary.ProgressCallback;
 import com.cloudinary.Uploader;
 import com.cloudinary.android.callback.ErrorInfo;
+import com.cloudinary.android.callback.UploadEventListener;
 import com.cloudinary.android.callback.UploadStatus;
+import com.cloudinary.android.payload.ByteArrayPayload;
 import com.cloudinary.android.payload.EmptyByteArrayException;
 import com.cloudinary.android.payload.FileNotFoundException;
 import com.cloudinary.android.payload.LocalUriNotFoundException;
 import com.cloudinary.android.payload.Payload;
 import com.cloudinary.android.payload.PayloadFactory;
 import com.cloudinary.android.payload.PayloadNotFoundException;
+import com.cloudinary.android.payload.PositionalSource;
 import com.cloudinary.android.payload.ResourceNotFoundException;
 import com.cloudinary.android.signed.Signature;
 import com.cloudinary.android.signed.SignatureProvider;
 import com.cloudinary.utils.ObjectUtils;
 import com.cloudinary.utils.StringUtils;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.SocketTimeoutException;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.cloudinary.android.callback.UploadStatus.FAILURE;
 import static com.cloudinary.android.callback.UploadStatus.RESCHEDULE;
@@ -40,7 +44,7 @@ class DefaultRequestProcessor implements RequestProcessor {
     private static final String TAG = "DefaultRequestProcessor";
     public static final String ERROR_COUNT_PARAM = "errorCount";
     private final CallbackDispatcher callbackDispatcher;
-    private AtomicInteger runningJobs = new AtomicInteger(0);
+    private BandwidthLimiter.TokenBucket globalBandwidth;
 
     DefaultRequestProcessor(CallbackDispatcher callbackDispatcher) {
         this.callbackDispatcher = callbackDispatcher;
@@ -51,30 +55,70 @@ class DefaultRequestProcessor implements RequestProcessor {
      */
     @Override
     public UploadStatus processRequest(Context context, RequestParams params) {
+        final String requestId = params.getString("requestId", null);
+        final boolean isImmediate = params.getBoolean("immediate", false);
+        final AdmissionController admissionController = MediaManager.get().getAdmissionController();
+
+        // pick up a network change before checking for a slot:
+        MediaManager.get().maybeAdjustConcurrency();
+        if (isImmediate) {
+            // immediate requests are never deferred, but they still take up a slot
+            admissionController.acquireNow();
+        } else if (!admissionController.tryAcquire()) {
+            // waiting would hold a thread of the background executor, shared with the app's own work. The request
+            // stays queued and runs again after its backoff:
+            Logger.d(TAG, String.format("Request %s deferred, no free slot with %d requests in flight.", requestId, admissionController.getInFlightCount()));
+            return RESCHEDULE;
+        }
+
+        try {
+            return processAdmittedRequest(context, params);
+        } finally {
+            admissionController.release();
+        }
+    }
 
+    private UploadStatus processAdmittedRequest(Context context, RequestParams params) {
         final String requestId = params.getString("requestId", null);
         final String uri = params.getString("uri", null);
         final String optionsAsString = params.getString("options", null);
         final int maxErrorRetries = params.getInt("maxErrorRetries", MediaManager.get().getGlobalUploadPolicy().getMaxErrorRetries());
         final int errorCount = params.getInt(ERROR_COUNT_PARAM, 0);
         final boolean isImmediate = params.getBoolean("immediate", false);
+        final UploadEventListener events = MediaManager.get().getUploadEventListener();
+        final UploadMetrics metrics = MediaManager.get().getMetrics();
         Logger.i(TAG, String.format("Processing Request %s.", requestId));
+        metrics.requestDequeued(requestId);
+        if (errorCount > 0) {
+            metrics.getRetries().increment();
+        }
+        if (events != null) {
+            events.requestStart(requestId, System.nanoTime());
+        }
 
         callbackDispatcher.dispatchStart(requestId);
         callbackDispatcher.wakeListenerServiceWithRequestStart(context, requestId);
 
         UploadStatus requestResultStatus;
         final Context appContext = context.getApplicationContext();
+        final UploadCheckpointStore checkpointStore = new UploadCheckpointStore(appContext);
+        final UploadDedupIndex dedupIndex = new UploadDedupIndex(appContext);
 
         Map resultData = null;
         boolean optionsLoadedSuccessfully = false;
         Map<String, Object> options = null;
+        if (events != null) {
+            events.optionsDecodeStart(requestId, System.nanoTime());
+        }
         try {
             options = StringUtils.isBlank(optionsAsString) ? new HashMap<String, Object>() : UploadRequest.decodeOptions(optionsAsString);
             optionsLoadedSuccessfully = true;
         } catch (Exception e) {
             Logger.e(TAG, String.format("Request %s, error loading options.", requestId), e);
         }
+        if (events != null) {
+            events.optionsDecodeEnd(requestId, System.nanoTime());
+        }
 
         ErrorInfo error = null;
 
@@ -83,8 +127,18 @@ class DefaultRequestProcessor implements RequestProcessor {
                 Payload payload = PayloadFactory.fromUri(uri);
                 if (payload != null) {
                     try {
-                        runningJobs.incrementAndGet();
-                        resultData = doProcess(requestId, appContext, options, params, payload);
+                        metrics.getInFlightRequests().increment();
+                        String dedupKey = getDedupKey(appContext, options, payload);
+                        Map previousResult = dedupKey != null ? dedupIndex.get(dedupKey) : null;
+                        if (previousResult != null) {
+                            Logger.i(TAG, String.format("Request %s is identical to a previous upload, skipping.", requestId));
+                            resultData = previousResult;
+                        } else {
+                            resultData = doProcess(requestId, appContext, options, params, payload, checkpointStore, events, metrics);
+                            if (dedupKey != null && resultData != null) {
+                                dedupIndex.put(dedupKey, resultData);
+                            }
+                        }
                         requestResultStatus = SUCCESS;
                     } catch (FileNotFoundException e) {
                         Logger.e(TAG, String.format("FileNotFoundException for request %s.", requestId), e);
@@ -136,7 +190,7 @@ class DefaultRequestProcessor implements RequestProcessor {
                         error = new ErrorInfo(ErrorInfo.UNKNOWN_ERROR, e.getMessage());
                         requestResultStatus = FAILURE;
                     } finally {
-                        runningJobs.decrementAndGet();
+                        metrics.getInFlightRequests().decrement();
                     }
                 } else {
                     Logger.d(TAG, String.format("Failing request %s, payload cannot be loaded.", requestId));
@@ -154,7 +208,25 @@ class DefaultRequestProcessor implements RequestProcessor {
             Logger.d(TAG, String.format("Failing request %s, cannot load options.", requestId));
         }
 
+        if (error != null) {
+            metrics.errorOccurred(error.getCode());
+        }
+
+        if (requestResultStatus == SUCCESS) {
+            metrics.getSucceededRequests().increment();
+        } else if (requestResultStatus == FAILURE) {
+            metrics.getFailedRequests().increment();
+        } else {
+            metrics.getRescheduledRequests().increment();
+            // the request is back in the queue until its next attempt:
+            metrics.requestQueued(requestId);
+        }
+
         if (requestResultStatus.isFinal()) {
+            // the request will not run again, the checkpoint is no longer needed:
+            checkpointStore.remove(requestId);
+            ByteArrayPayload.release(appContext, requestId);
+
             if (requestResultStatus == SUCCESS) {
                 callbackDispatcher.dispatchSuccess(context, requestId, resultData);
             } else {
@@ -169,6 +241,9 @@ class DefaultRequestProcessor implements RequestProcessor {
         }
 
         Logger.i(TAG, String.format("Finished processing request %s, result: %s", requestId, requestResultStatus));
+        if (events != null) {
+            events.requestEnd(requestId, System.nanoTime(), requestResultStatus);
+        }
 
         return requestResultStatus;
     }
@@ -183,20 +258,60 @@ class DefaultRequestProcessor implements RequestProcessor {
         return error;
     }
 
+    /**
+     * @return The dedup index key of the request, or null if the request should not be deduplicated.
+     */
+    private static String getDedupKey(Context appContext, Map<String, Object> options, Payload payload) throws PayloadNotFoundException, IOException {
+        if (!ObjectUtils.asBoolean(options.get(UploadDedupIndex.OPTION), false)) {
+            return null;
+        }
+
+        PositionalSource source = payload.openPositionalSource(appContext);
+        if (source == null) {
+            return null;
+        }
+
+        try {
+            return UploadDedupIndex.key(source, options);
+        } finally {
+            source.close();
+        }
+    }
+
     private Map doProcess(final String requestId, Context
-            appContext, Map<String, Object> options, RequestParams params, Payload payload) throws
+            appContext, Map<String, Object> options, RequestParams params, Payload payload, UploadCheckpointStore checkpointStore,
+                          UploadEventListener events, UploadMetrics metrics) throws
             PayloadNotFoundException, IOException, ErrorRetrievingSignatureException {
         Logger.d(TAG, String.format("Starting upload for request %s", requestId));
+        if (events != null) {
+            events.payloadPrepareStart(requestId, System.nanoTime());
+        }
         Object preparedPayload = payload.prepare(appContext);
         final long actualTotalBytes = payload.getLength(appContext);
-        final long offset = params.getLong("offset", 0);
+        if (events != null) {
+            events.payloadPrepareEnd(requestId, System.nanoTime(), actualTotalBytes);
+        }
+        final int parallelChunkUploads = params.getInt("parallelChunkUploads", MediaManager.get().getGlobalUploadPolicy().getParallelChunkUploads());
+        final int minChunkSize = params.getInt("minChunkSize", MediaManager.get().getGlobalUploadPolicy().getMinChunkSize());
+        final int maxChunkSize = params.getInt("maxChunkSize", MediaManager.get().getGlobalUploadPolicy().getMaxChunkSize());
+        final boolean adaptiveChunkSize = maxChunkSize > 0;
+        final long maxBytesPerSecond = params.getLong("maxBytesPerSecond", MediaManager.get().getGlobalUploadPolicy().getMaxBytesPerSecond());
+        final boolean isImmediate = params.getBoolean("immediate", false);
+        long offset = params.getLong("offset", 0);
         final int bufferSize;
         final String uploadUniqueId;
         int defaultBufferSize = options.containsKey("chunk_size") ? (int) options.get("chunk_size") : Uploader.BUFFER_SIZE;
+        UploadCheckpointStore.Checkpoint checkpoint = offset > 0 ? null : checkpointStore.get(requestId);
         if (offset > 0) {
             // this is a RESUME operation, buffer size needs to be consistent with previous parts:
             bufferSize = params.getInt("original_buffer_size", defaultBufferSize);
             uploadUniqueId = params.getString("original_upload_id", null);
+        } else if (checkpoint != null && checkpoint.getOffset() > 0 && (actualTotalBytes <= 0 || checkpoint.getOffset() < actualTotalBytes)) {
+            // the params were rebuilt for a new attempt (e.g. a background retry), resume from the persisted checkpoint:
+            Logger.d(TAG, String.format("Resuming request %s from checkpoint at offset %d", requestId, checkpoint.getOffset()));
+            offset = checkpoint.getOffset();
+            bufferSize = checkpoint.getBufferSize();
+            uploadUniqueId = checkpoint.getUploadId();
         } else {
             bufferSize = ObjectUtils.asInteger(options.get("chunk_size"), defaultBufferSize);
             uploadUniqueId = new Cloudinary().randomPublicId();
@@ -206,6 +321,9 @@ class DefaultRequestProcessor implements RequestProcessor {
         if (!MediaManager.get().hasCredentials() && !TRUE.equals(options.get("unsigned"))) {
             SignatureProvider signatureProvider = MediaManager.get().getSignatureProvider();
             if (signatureProvider != null) {
+                if (events != null) {
+                    events.signatureStart(requestId, System.nanoTime());
+                }
                 try {
                     Signature signature = signatureProvider.provideSignature(options);
                     options.put("signature", signature.getSignature());
@@ -213,22 +331,184 @@ class DefaultRequestProcessor implements RequestProcessor {
                     options.put("api_key", signature.getApiKey());
                 } catch (Exception e) {
                     throw new ErrorRetrievingSignatureException("Could not retrieve signature from the given provider: " + signatureProvider.getName(), e);
+                } finally {
+                    if (events != null) {
+                        events.signatureEnd(requestId, System.nanoTime());
+                    }
                 }
             }
         }
 
+        options.put(UploaderStrategy.METRICS_OPTION, metrics);
+        if (events != null) {
+            options.put(UploaderStrategy.EVENT_LISTENER_OPTION, events);
+            options.put(UploaderStrategy.REQUEST_ID_OPTION, requestId);
+        }
+
+        // immediate requests were explicitly asked to run now, they bypass the cap shared with the background requests:
+        BandwidthLimiter bandwidthLimiter = new BandwidthLimiter(isImmediate ? null : getGlobalBandwidth(),
+                maxBytesPerSecond > 0 ? new BandwidthLimiter.TokenBucket(maxBytesPerSecond) : null);
+        if (bandwidthLimiter.isLimited()) {
+            options.put(UploaderStrategy.BANDWIDTH_LIMITER_OPTION, bandwidthLimiter);
+        }
+
         final ProcessorCallback processorCallback = new ProcessorCallback(actualTotalBytes, offset, callbackDispatcher, requestId);
+        final CheckpointWriter checkpointWriter = new CheckpointWriter(checkpointStore, requestId, offset, bufferSize, uploadUniqueId);
+        final Uploader uploader = MediaManager.get().getCloudinary().uploader();
+        // when resuming, bufferSize is the size chosen by the previous attempt, so adaptive sizing picks up where it stopped:
+        final ChunkSizer chunkSizer = adaptiveChunkSize ? new ChunkSizer(bufferSize, minChunkSize, maxChunkSize) : ChunkSizer.fixed(bufferSize);
+        // payloads that can be read by position (files, uncompressed raw resources, byte arrays) are sent by the
+        // ChunkedUploader straight from the source, without copying every chunk into a new array, and a resumed
+        // upload jumps straight to the offset instead of reading and discarding the preceding bytes of the stream.
+        // Other payloads (e.g. compressed raw resources) are streamed by uploadLarge:
+        PositionalSource source = payload.openPositionalSource(appContext);
+        ContentDigest contentDigest = ContentDigest.fromOption(options.get(ContentDigest.OPTION));
+        boolean chunked = false;
 
         try {
-            return MediaManager.get().getCloudinary().uploader().uploadLarge(preparedPayload, options, bufferSize, offset, uploadUniqueId, processorCallback);
+            if (contentDigest != null && offset > 0) {
+                if (source != null) {
+                    // the bytes sent by previous attempts are hashed again, the rest is hashed as it's sent:
+                    contentDigest.catchUp(source, offset);
+                } else {
+                    Logger.d(TAG, String.format("Request %s is resumed from a payload that cannot be read by position, skipping content digest.", requestId));
+                    contentDigest = null;
+                }
+            }
+
+            if (contentDigest != null) {
+                options.put(UploaderStrategy.CONTENT_DIGEST_INSTANCE_OPTION, contentDigest);
+            }
+
+            long uploadStart = System.currentTimeMillis();
+            Map result;
+            if (source != null && source.length() > offset) {
+                chunked = true;
+                if (preparedPayload instanceof Closeable) {
+                    // not needed when reading by position
+                    ((Closeable) preparedPayload).close();
+                }
+
+                String fileName = preparedPayload instanceof File ? ((File) preparedPayload).getName() : null;
+                result = new ChunkedUploader(uploader, parallelChunkUploads, checkpointWriter)
+                        .upload(source, fileName, options, chunkSizer, offset, uploadUniqueId, processorCallback);
+            } else {
+                result = uploader.uploadLarge(preparedPayload, options, bufferSize, offset, uploadUniqueId,
+                        new SequentialChunksCallback(processorCallback, checkpointWriter, offset, bufferSize));
+            }
+
+            if (contentDigest != null) {
+                addContentDigest(result, contentDigest, source, actualTotalBytes);
+            }
+
+            long uploadMillis = System.currentTimeMillis() - uploadStart;
+            if (actualTotalBytes > offset && uploadMillis > 0) {
+                metrics.getRequestThroughput().record((actualTotalBytes - offset) * 1000 / uploadMillis);
+            }
+
+            return result;
         } finally {
+            if (source != null) {
+                source.close();
+            }
+
+            // persist the chunk size as well, it may have been adapted (e.g. shrunk after a failed chunk). uploadLarge
+            // doesn't use the sizer, it always sends chunks of bufferSize:
+            checkpointWriter.onAcknowledged(checkpointWriter.acknowledgedOffset, chunked ? chunkSizer.getChunkSize() : bufferSize);
+
             // save data into persisted request params to enable resuming later on
-            params.putInt("original_buffer_size", bufferSize);
-            params.putLong("offset", processorCallback.bytesUploaded - processorCallback.bytesUploaded % bufferSize);
+            params.putInt("original_buffer_size", checkpointWriter.chunkSize);
+            params.putLong("offset", checkpointWriter.acknowledgedOffset);
             params.putString("original_upload_id", uploadUniqueId);
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static void addContentDigest(Map result, ContentDigest contentDigest, PositionalSource source, long totalBytes) throws IOException {
+        if (source != null) {
+            totalBytes = source.length();
+            contentDigest.catchUp(source, totalBytes);
+        }
+
+        // only report a digest of the entire payload:
+        if (result != null && contentDigest.getPosition() == totalBytes) {
+            contentDigest.addToResult(result);
+        }
+    }
+
+    /**
+     * @return The bucket shared by all the requests, updated to the current global policy, or null if there's no global cap.
+     */
+    private synchronized BandwidthLimiter.TokenBucket getGlobalBandwidth() {
+        long maxTotalBytesPerSecond = MediaManager.get().getGlobalUploadPolicy().getMaxTotalBytesPerSecond();
+        if (maxTotalBytesPerSecond <= 0) {
+            return null;
+        }
+
+        if (globalBandwidth == null) {
+            globalBandwidth = new BandwidthLimiter.TokenBucket(maxTotalBytesPerSecond);
+        } else if (globalBandwidth.getBytesPerSecond() != maxTotalBytesPerSecond) {
+            globalBandwidth.setBytesPerSecond(maxTotalBytesPerSecond);
+        }
+
+        return globalBandwidth;
+    }
+
+    /**
+     * Persists the acknowledged offset of an upload whenever it advances.
+     */
+    private static final class CheckpointWriter implements ChunkedUploader.AcknowledgeListener {
+        private final UploadCheckpointStore checkpointStore;
+        private final String requestId;
+        private final String uploadUniqueId;
+        volatile long acknowledgedOffset;
+        volatile int chunkSize;
+
+        CheckpointWriter(UploadCheckpointStore checkpointStore, String requestId, long offset, int chunkSize, String uploadUniqueId) {
+            this.checkpointStore = checkpointStore;
+            this.requestId = requestId;
+            this.acknowledgedOffset = offset;
+            this.chunkSize = chunkSize;
+            this.uploadUniqueId = uploadUniqueId;
+        }
+
+        @Override
+        public synchronized void onAcknowledged(long offset, int chunkSize) {
+            if (offset > acknowledgedOffset || chunkSize != this.chunkSize) {
+                acknowledgedOffset = Math.max(offset, acknowledgedOffset);
+                this.chunkSize = chunkSize;
+                checkpointStore.save(requestId, new UploadCheckpointStore.Checkpoint(acknowledgedOffset, chunkSize, uploadUniqueId));
+            }
+        }
+    }
+
+    /**
+     * Tracks the acknowledged offset of {@link Uploader#uploadLarge} from its progress: chunks are sent one after another,
+     * so once bytes of a chunk are being sent, all the chunks before it were acknowledged by the server.
+     */
+    private static final class SequentialChunksCallback implements ProgressCallback {
+        private final ProgressCallback progressCallback;
+        private final CheckpointWriter checkpointWriter;
+        private final long offset;
+        private final int bufferSize;
+
+        SequentialChunksCallback(ProgressCallback progressCallback, CheckpointWriter checkpointWriter, long offset, int bufferSize) {
+            this.progressCallback = progressCallback;
+            this.checkpointWriter = checkpointWriter;
+            this.offset = offset;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void onProgress(long bytes, long totalBytes) {
+            progressCallback.onProgress(bytes, totalBytes);
+            // chunks start at the offset, which isn't necessarily a multiple of the buffer size (e.g. adaptive chunks)
+            if (bytes > offset) {
+                checkpointWriter.onAcknowledged(offset + (bytes - offset - 1) / bufferSize * bufferSize, bufferSize);
+            }
+        }
+    }
+
     private static final class ProcessorCallback implements ProgressCallback {
         final long notifyThrottlingStepSize;
         private final CallbackDispatcher dispatcher;
@@ -254,6 +534,7 @@ class DefaultRequestProcessor implements RequestProcessor {
             if (bytesNotified + notifyThrottlingStepSize < bytes || totalBytes == this.totalBytes) {
                 bytesNotified += notifyThrottlingStepSize;
                 dispatcher.dispatchProgress(requestId, bytes, this.totalBytes);
+                MediaManager.get().maybeAdjustConcurrency();
             }
         }
     }
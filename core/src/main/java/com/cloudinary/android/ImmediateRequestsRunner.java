@@ -3,6 +3,12 @@ package com.cloudinary.android;
 import android.content.Context;
 
 public interface ImmediateRequestsRunner {
+    /**
+     * Run the request as soon as possible, without waiting for any constraints.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException If the request cannot be accepted, e.g. when too many
+     *                                                         requests are already waiting to run.
+     */
     void runRequest(Context context, UploadRequest uploadRequest);
 
     boolean cancelRequest(String requestId);
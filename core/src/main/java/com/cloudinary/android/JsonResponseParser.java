@@ -0,0 +1,116 @@
+package com.cloudinary.android;
+
+import org.cloudinary.json.JSONException;
+import org.cloudinary.json.JSONObject;
+import org.cloudinary.json.JSONTokener;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes a JSON response directly from the response stream into the result map, without buffering the body into
+ * a string or building an intermediate {@link JSONObject}.
+ * The result has the same structure {@link com.cloudinary.utils.ObjectUtils#toMap(JSONObject)} produces: objects are
+ * decoded to maps, arrays to lists and JSON nulls to null.
+ */
+final class JsonResponseParser {
+    private JsonResponseParser() {
+    }
+
+    /**
+     * Parses the stream, which must contain a single JSON object, reading it to the end.
+     *
+     * @param inputStream The response stream, encoded in UTF-8.
+     * @return The decoded object.
+     * @throws JSONException If the stream does not contain a valid JSON object, or if it cannot be read.
+     */
+    static Map<String, Object> parse(InputStream inputStream) throws JSONException {
+        JSONTokener tokener;
+        try {
+            tokener = new JSONTokener(new InputStreamReader(inputStream, "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new JSONException(e);
+        }
+
+        if (tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A JSON object text must begin with '{'");
+        }
+
+        Map<String, Object> result = parseObject(tokener);
+        if (tokener.nextClean() != 0) {
+            throw tokener.syntaxError("Unexpected content after the JSON object");
+        }
+
+        return result;
+    }
+
+    private static Map<String, Object> parseObject(JSONTokener tokener) throws JSONException {
+        Map<String, Object> map = new HashMap<>();
+        char c = tokener.nextClean();
+        if (c == '}') {
+            return map;
+        }
+
+        while (true) {
+            if (c != '"' && c != '\'') {
+                throw tokener.syntaxError("Expected a quoted key");
+            }
+
+            String key = tokener.nextString(c);
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+
+            map.put(key, parseValue(tokener));
+
+            c = tokener.nextClean();
+            if (c == '}') {
+                return map;
+            } else if (c != ',') {
+                throw tokener.syntaxError("Expected a ',' or '}'");
+            }
+
+            c = tokener.nextClean();
+        }
+    }
+
+    private static List<Object> parseArray(JSONTokener tokener) throws JSONException {
+        List<Object> list = new ArrayList<>();
+        char c = tokener.nextClean();
+        if (c == ']') {
+            return list;
+        }
+
+        tokener.back();
+        while (true) {
+            list.add(parseValue(tokener));
+
+            c = tokener.nextClean();
+            if (c == ']') {
+                return list;
+            } else if (c != ',') {
+                throw tokener.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    private static Object parseValue(JSONTokener tokener) throws JSONException {
+        char c = tokener.nextClean();
+        switch (c) {
+            case '{':
+                return parseObject(tokener);
+            case '[':
+                return parseArray(tokener);
+            default:
+                // strings, numbers, booleans and null are decoded by the tokener itself
+                tokener.back();
+                Object value = tokener.nextValue();
+                return value == JSONObject.NULL ? null : value;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.cloudinary.Configuration;
 import com.cloudinary.Url;
 import com.cloudinary.android.callback.ErrorInfo;
 import com.cloudinary.android.callback.UploadCallback;
+import com.cloudinary.android.callback.UploadEventListener;
 import com.cloudinary.android.callback.UploadResult;
 import com.cloudinary.android.callback.UploadStatus;
 import com.cloudinary.android.download.DownloadRequestBuilder;
@@ -23,10 +24,13 @@ import com.cloudinary.android.payload.Payload;
 import com.cloudinary.android.payload.ResourcePayload;
 import com.cloudinary.android.policy.GlobalUploadPolicy;
 import com.cloudinary.android.signed.SignatureProvider;
+import com.cloudinary.android.transport.HttpTransport;
+import com.cloudinary.android.transport.KeepAliveHttpTransport;
 import com.cloudinary.utils.Analytics;
 import com.cloudinary.utils.StringUtils;
 
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -53,15 +57,21 @@ public class MediaManager {
     private final RequestProcessor requestProcessor;
     private final CallbackDispatcher callbackDispatcher;
     private final SignatureProvider signatureProvider;
-    private final ImmediateRequestsRunner immediateRequestsRunner;
+    private final DefaultImmediateRequestsRunner immediateRequestsRunner;
 
     private final ExecutorService executor;
+    private final UploadMetrics metrics = new UploadMetrics();
 
     // Tech version is the Android SDK (Int) + "0" since the analytics knows to parse major.minor
     private final String techVersion = Integer.toString(android.os.Build.VERSION.SDK_INT) + ".0";
 
     private GlobalUploadPolicy globalUploadPolicy = GlobalUploadPolicy.defaultPolicy();
+    private final AdmissionController admissionController = new AdmissionController(globalUploadPolicy.getMaxConcurrentRequests());
     private DownloadRequestBuilderFactory downloadRequestBuilderFactory;
+    private volatile Preconnector preconnector;
+    private volatile UploadEventListener uploadEventListener;
+    private volatile NetworkSignal networkSignal;
+    private volatile ConcurrencyTuner concurrencyTuner;
 
     private MediaManager(@NonNull Context context, @Nullable SignatureProvider signatureProvider, @Nullable Map config) {
         executor = new ThreadPoolExecutor(4, 4,
@@ -70,12 +80,13 @@ public class MediaManager {
 
         // use context to initialize components but DO NOT store it
         BackgroundRequestStrategy strategy = BackgroundStrategyProvider.provideStrategy();
-        callbackDispatcher = new DefaultCallbackDispatcher(context);
+        callbackDispatcher = new DefaultCallbackDispatcher(context, metrics);
         requestProcessor = new DefaultRequestProcessor(callbackDispatcher);
         immediateRequestsRunner = new DefaultImmediateRequestsRunner(requestProcessor);
         requestDispatcher = new DefaultRequestDispatcher(strategy, immediateRequestsRunner);
 
         strategy.init(context);
+        networkSignal = new ConnectivityNetworkSignal(context);
         this.signatureProvider = signatureProvider;
 
         String cloudinaryUrl = Utils.cloudinaryUrlFromContext(context);
@@ -252,6 +263,7 @@ public class MediaManager {
      * @return True if the request was found and cancelled successfully.
      */
     public boolean cancelRequest(String requestId) {
+        metrics.requestDequeued(requestId);
         return immediateRequestsRunner.cancelRequest(requestId) || requestDispatcher.cancelRequest(requestId);
     }
 
@@ -261,6 +273,7 @@ public class MediaManager {
      * @return The count of canceled requests and running jobs.
      */
     public int cancelAllRequests() {
+        metrics.queueCleared();
         return requestDispatcher.cancelAllRequests() + immediateRequestsRunner.cancelAllRequests();
     }
 
@@ -326,8 +339,54 @@ public class MediaManager {
      *
      * @param globalUploadPolicy The policy to set. See {@link UploadPolicy.Builder}.
      */
-    public void setGlobalUploadPolicy(GlobalUploadPolicy globalUploadPolicy) {
+    public synchronized void setGlobalUploadPolicy(GlobalUploadPolicy globalUploadPolicy) {
         this.globalUploadPolicy = globalUploadPolicy;
+        if (globalUploadPolicy.isConcurrencyAutotuned()) {
+            if (concurrencyTuner == null) {
+                concurrencyTuner = new ConcurrencyTuner(metrics, networkSignal, globalUploadPolicy.getMinConcurrentRequests(), globalUploadPolicy.getMaxConcurrentRequests(), new ConcurrencyTuner.Listener() {
+                    @Override
+                    public void onLimitChanged(int limit) {
+                        setConcurrencyLimit(limit, limit);
+                    }
+                });
+                // the tuner starts from the upper bound
+                setConcurrencyLimit(globalUploadPolicy.getMaxConcurrentRequests(), globalUploadPolicy.getMaxConcurrentRequests());
+            } else {
+                concurrencyTuner.setBounds(globalUploadPolicy.getMinConcurrentRequests(), globalUploadPolicy.getMaxConcurrentRequests());
+            }
+        } else {
+            concurrencyTuner = null;
+            setConcurrencyLimit(globalUploadPolicy.getMaxConcurrentRequests(), DefaultImmediateRequestsRunner.DEFAULT_THREADS);
+        }
+    }
+
+    private void setConcurrencyLimit(int maxConcurrentRequests, int immediateThreads) {
+        admissionController.setMaxConcurrentRequests(maxConcurrentRequests);
+        immediateRequestsRunner.setThreads(immediateThreads);
+    }
+
+    /**
+     * Set the source of the network type used when auto tuning the number of concurrent requests, see
+     * {@link GlobalUploadPolicy.Builder#autotuneConcurrency(int)}. By default the android connectivity service is used.
+     *
+     * @param networkSignal The network signal to use.
+     */
+    public synchronized void setNetworkSignal(NetworkSignal networkSignal) {
+        this.networkSignal = networkSignal;
+        ConcurrencyTuner tuner = concurrencyTuner;
+        if (tuner != null) {
+            tuner.setNetworkSignal(networkSignal);
+        }
+    }
+
+    /**
+     * Adjust the number of concurrent requests if it's auto tuned and a sample is due, called from the upload threads.
+     */
+    void maybeAdjustConcurrency() {
+        ConcurrencyTuner tuner = concurrencyTuner;
+        if (tuner != null) {
+            tuner.maybeAdjust();
+        }
     }
 
     /**
@@ -339,14 +398,41 @@ public class MediaManager {
         callbackDispatcher.registerCallback(callback);
     }
 
+    /**
+     * Register a callback for state changes and results, called using the given executor instead of the main thread.
+     * Useful for callbacks that don't update the ui, e.g. {@code Runnable::run} calls the callback directly on the
+     * upload thread. Events handed to an executor that runs tasks concurrently may also be delivered concurrently.
+     *
+     * @param callback The callback to activate upon state changes and results.
+     * @param executor The executor to call the callback with, null for the main thread.
+     */
+    public void registerCallback(UploadCallback callback, Executor executor) {
+        callbackDispatcher.registerCallback(callback, executor);
+    }
+
     /**
      * Register a callback for state changes and results for a specific request.
      *
      * @param requestId The id of the request.
      * @param callback  The callback to activate upon state changes and results.
+     * @param executor  The executor to call the callback with, null for the main thread.
+     */
+    void registerCallback(String requestId, UploadCallback callback, Executor executor) {
+        callbackDispatcher.registerCallback(requestId, callback, executor);
+    }
+
+    /**
+     * Set the minimum time between progress updates of a request delivered to a callback, 0 by default. Updates are
+     * never queued up: when the main thread is busy, or the interval did not pass yet, the next delivery reports the
+     * latest progress and the updates in between are skipped.
+     *
+     * @param minProgressIntervalMillis The minimum interval in milliseconds.
      */
-    void registerCallback(String requestId, UploadCallback callback) {
-        callbackDispatcher.registerCallback(requestId, callback);
+    public void setMinProgressIntervalMillis(long minProgressIntervalMillis) {
+        if (minProgressIntervalMillis < 0) {
+            throw new IllegalArgumentException("Min progress interval cannot be negative");
+        }
+        callbackDispatcher.setMinProgressIntervalMillis(minProgressIntervalMillis);
     }
 
     /**
@@ -361,7 +447,8 @@ public class MediaManager {
     /**
      * Fetch a pending result. In case the app wasn't awake when the upload stopped, successfully or not, the result can be fetched here. Assuming
      * the app wakes up through a the callback service defined in the manifest, it should get the full results by calling this method.
-     * Note: the result is cleared once this method is called.
+     * Note: the result is cleared once this method is called. Results that are not fetched are dropped after a while,
+     * see {@link UploadMetrics#getExpiredResults()} and {@link UploadMetrics#getEvictedResults()}.
      *
      * @param requestId Id of the request to fetch results for.
      * @return The upload result.
@@ -459,6 +546,97 @@ public class MediaManager {
         downloadRequestBuilderFactory = factory;
     }
 
+    /**
+     * Set the {@link HttpTransport} used to send upload requests. Defaults to {@link KeepAliveHttpTransport}.
+     */
+    public void setHttpTransport(@NonNull HttpTransport transport) {
+        UploaderStrategy.setHttpTransport(transport);
+    }
+
+    /**
+     * @return The {@link HttpTransport} used to send upload requests.
+     */
+    public HttpTransport getHttpTransport() {
+        return UploaderStrategy.getHttpTransport();
+    }
+
+    /**
+     * @return The counters and histograms of the upload pipeline, e.g. to export to a monitoring system using
+     * {@link UploadMetrics#snapshot()}.
+     */
+    public UploadMetrics getMetrics() {
+        return metrics;
+    }
+
+    AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * Set a listener for the phases of all upload requests, see {@link UploadEventListener}.
+     *
+     * @param listener The listener, or null to remove the current listener. Nothing is measured while there's no listener.
+     */
+    public void setUploadEventListener(@Nullable UploadEventListener listener) {
+        uploadEventListener = listener;
+    }
+
+    /**
+     * @return The listener for the phases of upload requests, or null if none was set.
+     */
+    @Nullable
+    public UploadEventListener getUploadEventListener() {
+        return uploadEventListener;
+    }
+
+    /**
+     * Forget the previous uploads of the given public id, so deduplicated requests (see {@link UploadRequest#deduplicate()})
+     * upload the payload again. Call this after deleting or overwriting the resource.
+     *
+     * @param context  Android context.
+     * @param publicId The public id of the uploaded resource.
+     * @return The number of previous uploads forgotten.
+     */
+    public int invalidateDeduplicatedUploads(@NonNull Context context, @NonNull String publicId) {
+        return new UploadDedupIndex(context).invalidate(publicId);
+    }
+
+    /**
+     * Forget all the previous uploads, see {@link #invalidateDeduplicatedUploads(Context, String)}.
+     *
+     * @param context Android context.
+     */
+    public void clearDeduplicatedUploads(@NonNull Context context) {
+        new UploadDedupIndex(context).clear();
+    }
+
+    /**
+     * Resolve and warm up a connection to the upload endpoint in the background, so the first upload doesn't pay for
+     * the DNS, TCP and TLS setup. Call this when an upload is expected soon, e.g. when showing an upload screen.
+     */
+    public void preconnect() {
+        String uploadUrl;
+        try {
+            uploadUrl = cloudinary.uploader().getUploadUrl(null);
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Cannot preconnect, upload url could not be built.", e);
+            return;
+        }
+
+        Preconnector preconnector = new Preconnector(uploadUrl);
+        this.preconnector = preconnector;
+        executor.execute(preconnector);
+    }
+
+    /**
+     * @return The time it took the last {@link #preconnect()} call to resolve the host and warm up a connection,
+     * in milliseconds, or -1 if no warm up completed yet.
+     */
+    public long getPreconnectMillis() {
+        Preconnector preconnector = this.preconnector;
+        return preconnector != null ? preconnector.getLastWarmUpMillis() : -1;
+    }
+
     /**
      * Create a new {@link DownloadRequestBuilder} to be used to create a download request.
      * @param context Android context
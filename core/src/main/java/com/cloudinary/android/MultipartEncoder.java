@@ -0,0 +1,117 @@
+package com.cloudinary.android;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the parts of a multipart/form-data body as bytes. The boundary and the fixed header fragments are encoded
+ * once per body, and all writes go through a single buffer so the form fields and part headers reach the connection
+ * in a few large writes instead of one small write per line.
+ */
+final class MultipartEncoder {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int OUTPUT_BUFFER_SIZE = 8 * 1024;
+    private static final byte[] CRLF = "\r\n".getBytes(ASCII);
+    private static final byte[] CONTENT_DISPOSITION = "Content-Disposition: form-data; name=\"".getBytes(ASCII);
+    private static final byte[] FILE_NAME = "\"; filename=\"".getBytes(ASCII);
+    private static final byte[] FILE_PART_HEADER_END = ("\"\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Transfer-Encoding: binary\r\n" +
+            "\r\n").getBytes(ASCII);
+
+    private final Charset charset;
+    private final byte[] boundaryLine;
+    private final byte[] closingBoundary;
+    private final byte[] formFieldHeaderEnd;
+    private final OutputStream out;
+    private boolean closed;
+
+    /**
+     * @param out      The stream to write the body to.
+     * @param boundary The multipart boundary.
+     * @param charset  The charset used to encode field names, values and file names.
+     */
+    MultipartEncoder(OutputStream out, String boundary, String charset) {
+        this.out = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+        this.charset = Charset.forName(charset);
+        this.boundaryLine = boundaryLine(boundary);
+        this.closingBoundary = closingBoundary(boundary);
+        this.formFieldHeaderEnd = formFieldHeaderEnd(charset);
+    }
+
+    void writeFormField(String name, String value) throws IOException {
+        out.write(boundaryLine);
+        out.write(CONTENT_DISPOSITION);
+        out.write(name.getBytes(charset));
+        out.write(formFieldHeaderEnd);
+        out.write(value.getBytes(charset));
+        out.write(CRLF);
+    }
+
+    void writeFilePartHeader(String fieldName, String fileName) throws IOException {
+        out.write(boundaryLine);
+        out.write(CONTENT_DISPOSITION);
+        out.write(fieldName.getBytes(charset));
+        out.write(FILE_NAME);
+        out.write(fileName.getBytes(charset));
+        out.write(FILE_PART_HEADER_END);
+    }
+
+    void writeContent(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+    }
+
+    void writeFilePartEnd() throws IOException {
+        out.write(CRLF);
+    }
+
+    /**
+     * Writes the closing boundary and closes the underlying stream.
+     */
+    void finish() throws IOException {
+        out.write(closingBoundary);
+        close();
+    }
+
+    /**
+     * Flushes and closes the underlying stream. Closing more than once has no effect.
+     */
+    void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    static long formFieldLength(String boundary, String charset, String name, String value) {
+        Charset cs = Charset.forName(charset);
+        return boundaryLine(boundary).length + CONTENT_DISPOSITION.length + name.getBytes(cs).length +
+                formFieldHeaderEnd(charset).length + value.getBytes(cs).length + CRLF.length;
+    }
+
+    static long filePartLength(String boundary, String charset, String fieldName, String fileName, long fileLength) {
+        Charset cs = Charset.forName(charset);
+        return boundaryLine(boundary).length + CONTENT_DISPOSITION.length + fieldName.getBytes(cs).length + FILE_NAME.length +
+                fileName.getBytes(cs).length + FILE_PART_HEADER_END.length + fileLength + CRLF.length;
+    }
+
+    static long closingLength(String boundary) {
+        return closingBoundary(boundary).length;
+    }
+
+    private static byte[] boundaryLine(String boundary) {
+        return ("--" + boundary + "\r\n").getBytes(ASCII);
+    }
+
+    private static byte[] closingBoundary(String boundary) {
+        return ("--" + boundary + "--\r\n").getBytes(ASCII);
+    }
+
+    private static byte[] formFieldHeaderEnd(String charset) {
+        return ("\"\r\n" +
+                "Content-Type: text/plain; charset=" + charset + "\r\n" +
+                "\r\n").getBytes(ASCII);
+    }
+}
@@ -2,17 +2,23 @@ package com.cloudinary.android;
 
 import android.os.Build;
 
+import androidx.core.util.Pools;
+
 import com.cloudinary.Cloudinary;
+import com.cloudinary.android.payload.PositionalSource;
+import com.cloudinary.android.transport.HttpTransport;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Map;
 
 /**
@@ -26,14 +32,19 @@ public class MultipartUtility {
     public final static String USER_AGENT = "CloudinaryAndroid/" + MediaManager.VERSION +
             " (Android " + Build.VERSION.RELEASE + "; " + Build.MODEL + " Build/" + Build.DISPLAY
             + ") CloudinaryJava/" + Cloudinary.VERSION;
-    private static final String LINE_FEED = "\r\n";
-    private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // transfer buffers are recycled between parts and requests to avoid churning large arrays
+    private static final Pools.SynchronizedPool<byte[]> bufferPool = new Pools.SynchronizedPool<>(8);
     private final String boundary;
     private final MultipartCallback multipartCallback;
     private HttpURLConnection httpConn;
     private String charset;
-    private OutputStream outputStream;
-    private PrintWriter writer;
+    private MultipartEncoder encoder;
+    private OutputStream requestStream;
+    private ContentDigest contentDigest;
+    private long contentPosition;
+    // form fields are written by methods that can't throw, a failure is reported by the next call that can
+    private IOException pendingError;
 
     /**
      * This constructor initializes a new HTTP POST request with content type is
@@ -52,12 +63,49 @@ public class MultipartUtility {
     }
 
     public MultipartUtility(String requestURL, String charset, String boundary, Map<String, String> headers, MultipartCallback multipartCallback, int connectTimeout, int readTimeout) throws IOException {
+        this(requestURL, charset, boundary, headers, multipartCallback, connectTimeout, readTimeout, -1);
+    }
+
+    /**
+     * This constructor initializes a new HTTP POST request with content type is
+     * set to multipart/form-data
+     *
+     * @param contentLength The exact length of the multipart body in bytes, see {@link #formFieldLength(String, String, String, String)},
+     *                      {@link #filePartLength(String, String, String, String, long)} and {@link #closingLength(String, String)}.
+     *                      When the length is unknown (negative) the request body is sent using chunked streaming mode.
+     * @throws IOException
+     */
+    public MultipartUtility(String requestURL, String charset, String boundary, Map<String, String> headers, MultipartCallback multipartCallback, int connectTimeout, int readTimeout, long contentLength) throws IOException {
+        this(requestURL, charset, boundary, headers, multipartCallback, connectTimeout, readTimeout, contentLength, UploaderStrategy.getHttpTransport());
+    }
+
+    /**
+     * This constructor initializes a new HTTP POST request with content type is
+     * set to multipart/form-data
+     *
+     * @param transport The transport used to open the connection. The caller is responsible for releasing the
+     *                  connection returned by {@link #execute()} back to the transport, or the one returned by
+     *                  {@link #getConnection()} if the request fails before that. If this constructor throws, the
+     *                  connection is already released.
+     * @throws IOException
+     */
+    public MultipartUtility(String requestURL, String charset, String boundary, Map<String, String> headers, MultipartCallback multipartCallback, int connectTimeout, int readTimeout, long contentLength, HttpTransport transport) throws IOException {
         this.charset = charset;
         this.boundary = boundary;
         this.multipartCallback = multipartCallback;
 
         URL url = new URL(requestURL);
-        httpConn = (HttpURLConnection) url.openConnection();
+        httpConn = transport.openConnection(url);
+        try {
+            connect(headers, connectTimeout, readTimeout, contentLength);
+        } catch (IOException | RuntimeException e) {
+            transport.releaseConnection(httpConn, false);
+            throw e;
+        }
+        encoder = new MultipartEncoder(requestStream, boundary, charset);
+    }
+
+    private void connect(Map<String, String> headers, int connectTimeout, int readTimeout, long contentLength) throws IOException {
         if (connectTimeout > 0) {
             httpConn.setConnectTimeout(connectTimeout);
         }
@@ -65,7 +113,11 @@ public class MultipartUtility {
             httpConn.setReadTimeout(readTimeout);
         }
         httpConn.setDoOutput(true); // indicates POST method
-        httpConn.setChunkedStreamingMode(0);
+        if (contentLength >= 0) {
+            httpConn.setFixedLengthStreamingMode(contentLength);
+        } else {
+            httpConn.setChunkedStreamingMode(0);
+        }
         httpConn.setDoInput(true);
         if (headers != null) {
             for (Map.Entry<String, String> header : headers.entrySet()) {
@@ -74,8 +126,25 @@ public class MultipartUtility {
         }
         httpConn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
         httpConn.setRequestProperty("User-Agent", USER_AGENT);
-        outputStream = httpConn.getOutputStream();
-        writer = new PrintWriter(new OutputStreamWriter(outputStream, charset), true);
+        requestStream = httpConn.getOutputStream();
+    }
+
+    /**
+     * Hashes the file content as it's written to the request body.
+     *
+     * @param position The position of the file content of this request in the entire payload, when the payload is
+     *                 sent in chunks.
+     */
+    void setContentDigest(ContentDigest digest, long position) {
+        this.contentDigest = digest;
+        this.contentPosition = position;
+    }
+
+    /**
+     * Paces the request body according to the given limiter. Must be called before any part is added.
+     */
+    void setBandwidthLimiter(BandwidthLimiter limiter) {
+        encoder = new MultipartEncoder(limiter.wrap(requestStream), boundary, charset);
     }
 
     public MultipartUtility(String requestURL, String charset, String boundary) throws IOException {
@@ -89,12 +158,15 @@ public class MultipartUtility {
      * @param value field value
      */
     public void addFormField(String name, String value) {
-        writer.append("--" + boundary).append(LINE_FEED);
-        writer.append("Content-Disposition: form-data; name=\"" + name + "\"").append(LINE_FEED);
-        writer.append("Content-Type: text/plain; charset=" + charset).append(LINE_FEED);
-        writer.append(LINE_FEED);
-        writer.append(value).append(LINE_FEED);
-        writer.flush();
+        if (pendingError != null) {
+            return;
+        }
+
+        try {
+            encoder.writeFormField(name, value);
+        } catch (IOException e) {
+            pendingError = e;
+        }
     }
 
     /**
@@ -107,34 +179,148 @@ public class MultipartUtility {
     public void addFilePart(String fieldName, File uploadFile, String fileName) throws IOException {
         if (fileName == null) fileName = uploadFile.getName();
         FileInputStream inputStream = new FileInputStream(uploadFile);
-        addFilePart(fieldName, inputStream, fileName);
+        try {
+            FileChannel channel = inputStream.getChannel();
+            addFilePart(fieldName, channel, 0, channel.size(), fileName);
+        } finally {
+            inputStream.close();
+        }
     }
 
     public void addFilePart(String fieldName, File uploadFile) throws IOException {
         addFilePart(fieldName, uploadFile, "file");
     }
 
+    /**
+     * Adds a upload file section to the request, reading a range of the given channel using positional reads.
+     * This does not modify the channel position and does not close the channel.
+     *
+     * @param fieldName name attribute in {@code <input type="file" name="..." />}
+     * @param channel   The channel to read the file content from
+     * @param position  The position in the channel to start reading from
+     * @param count     The number of bytes to send
+     * @param fileName  The file name to send, defaults to "file" if null.
+     * @throws IOException
+     */
+    public void addFilePart(String fieldName, FileChannel channel, long position, long count, String fileName) throws IOException {
+        if (fileName == null) fileName = "file";
+        throwPendingError();
+        encoder.writeFilePartHeader(fieldName, fileName);
+
+        byte[] buffer = acquireBuffer();
+        try {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            long totalRead = 0;
+            while (totalRead < count) {
+                byteBuffer.clear();
+                byteBuffer.limit((int) Math.min(buffer.length, count - totalRead));
+                int bytesRead = channel.read(byteBuffer, position + totalRead);
+                if (bytesRead == -1) {
+                    throw new EOFException(String.format("Expected %d bytes but the file ended after %d", count, totalRead));
+                }
+                writeContent(buffer, 0, bytesRead);
+                notifyCallback(totalRead += bytesRead);
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+
+        encoder.writeFilePartEnd();
+    }
+
+    /**
+     * Adds a upload file section to the request, reading a range of the given source by position.
+     * The source is not closed.
+     *
+     * @param fieldName name attribute in {@code <input type="file" name="..." />}
+     * @param source    The source to read the file content from
+     * @param position  The position in the source to start reading from
+     * @param count     The number of bytes to send
+     * @param fileName  The file name to send, defaults to "file" if null.
+     * @throws IOException
+     */
+    public void addFilePart(String fieldName, PositionalSource source, long position, long count, String fileName) throws IOException {
+        if (fileName == null) fileName = "file";
+        throwPendingError();
+        encoder.writeFilePartHeader(fieldName, fileName);
+
+        byte[] buffer = acquireBuffer();
+        try {
+            long totalRead = 0;
+            while (totalRead < count) {
+                int bytesRead = source.read(position + totalRead, buffer, 0, (int) Math.min(buffer.length, count - totalRead));
+                if (bytesRead == -1) {
+                    throw new EOFException(String.format("Expected %d bytes but the source ended after %d", count, totalRead));
+                }
+                writeContent(buffer, 0, bytesRead);
+                notifyCallback(totalRead += bytesRead);
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+
+        encoder.writeFilePartEnd();
+    }
+
+    /**
+     * Adds a upload file section to the request, writing the byte array directly without intermediate copies.
+     *
+     * @param fieldName name attribute in {@code <input type="file" name="..." />}
+     * @param data      The file content
+     * @param fileName  The file name to send, defaults to "file" if null.
+     * @throws IOException
+     */
+    public void addFilePart(String fieldName, byte[] data, String fileName) throws IOException {
+        if (fileName == null) fileName = "file";
+        throwPendingError();
+        encoder.writeFilePartHeader(fieldName, fileName);
+
+        int totalWritten = 0;
+        while (totalWritten < data.length) {
+            int length = Math.min(BUFFER_SIZE, data.length - totalWritten);
+            writeContent(data, totalWritten, length);
+            notifyCallback(totalWritten += length);
+        }
+
+        encoder.writeFilePartEnd();
+    }
+
     public void addFilePart(String fieldName, InputStream inputStream, String fileName) throws IOException {
         if (fileName == null) fileName = "file";
-        writer.append("--" + boundary).append(LINE_FEED);
-        writer.append("Content-Disposition: form-data; name=\"" + fieldName + "\"; filename=\"" + fileName + "\"").append(LINE_FEED);
-        writer.append("Content-Type: ").append(APPLICATION_OCTET_STREAM).append(LINE_FEED);
-        writer.append("Content-Transfer-Encoding: binary").append(LINE_FEED);
-        writer.append(LINE_FEED);
-        writer.flush();
-
-        byte[] buffer = new byte[4096];
-        int bytesRead;
-        long totalRead = 0;
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-            outputStream.write(buffer, 0, bytesRead);
-            notifyCallback(totalRead += bytesRead);
-        }
-        outputStream.flush();
+        throwPendingError();
+        encoder.writeFilePartHeader(fieldName, fileName);
+
+        byte[] buffer = acquireBuffer();
+        try {
+            int bytesRead;
+            long totalRead = 0;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                writeContent(buffer, 0, bytesRead);
+                notifyCallback(totalRead += bytesRead);
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
         inputStream.close();
 
-        writer.append(LINE_FEED);
-        writer.flush();
+        encoder.writeFilePartEnd();
+    }
+
+    private void writeContent(byte[] buffer, int offset, int length) throws IOException {
+        encoder.writeContent(buffer, offset, length);
+        if (contentDigest != null) {
+            contentDigest.update(contentPosition, buffer, offset, length);
+            contentPosition += length;
+        }
+    }
+
+    private static byte[] acquireBuffer() {
+        byte[] buffer = bufferPool.acquire();
+        return (buffer != null) ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    private static void releaseBuffer(byte[] buffer) {
+        bufferPool.release(buffer);
     }
 
     private void notifyCallback(long bytes) {
@@ -155,22 +341,79 @@ public class MultipartUtility {
      * @throws IOException
      */
     public HttpURLConnection execute() throws IOException {
-        writer.append("--" + boundary + "--").append(LINE_FEED);
-        writer.close();
+        throwPendingError();
+        encoder.finish();
 
         return httpConn;
     }
 
+    /**
+     * @return The connection of this request, to release it back to the transport when the request fails before
+     * {@link #execute()} returns it.
+     */
+    public HttpURLConnection getConnection() {
+        return httpConn;
+    }
+
     /**
      * Closes the internal connection's output stream.
      * Closing a previously closed stream has no effect.
      */
     public void close() {
-        if (writer != null) {
-            writer.close();
+        if (encoder != null) {
+            try {
+                encoder.close();
+            } catch (IOException ignored) {
+                // the request failed and the connection is discarded anyway
+            }
         }
     }
 
+    private void throwPendingError() throws IOException {
+        if (pendingError != null) {
+            throw pendingError;
+        }
+    }
+
+    /**
+     * Calculates the number of bytes {@link #addFormField(String, String)} writes for the given field.
+     *
+     * @param boundary The multipart boundary
+     * @param charset  The charset used to encode the body
+     * @param name     field name
+     * @param value    field value
+     * @return The encoded length of the field, in bytes.
+     */
+    public static long formFieldLength(String boundary, String charset, String name, String value) throws UnsupportedEncodingException {
+        return MultipartEncoder.formFieldLength(boundary, charset, name, value);
+    }
+
+    /**
+     * Calculates the number of bytes the file part methods write for a file of the given length.
+     *
+     * @param boundary   The multipart boundary
+     * @param charset    The charset used to encode the body
+     * @param fieldName  name attribute in {@code <input type="file" name="..." />}
+     * @param fileName   The file name to send, defaults to "file" if null.
+     * @param fileLength The length of the file content, in bytes.
+     * @return The encoded length of the file part, in bytes.
+     */
+    public static long filePartLength(String boundary, String charset, String fieldName, String fileName, long fileLength) throws UnsupportedEncodingException {
+        if (fileName == null) fileName = "file";
+        return MultipartEncoder.filePartLength(boundary, charset, fieldName, fileName, fileLength);
+    }
+
+    /**
+     * Calculates the number of bytes {@link #execute()} writes to close the multipart body.
+     *
+     * @param boundary The multipart boundary
+     * @param charset  The charset used to encode the body
+     * @return The encoded length of the closing boundary, in bytes.
+     */
+    public static long closingLength(String boundary, String charset) throws UnsupportedEncodingException {
+        return MultipartEncoder.closingLength(boundary);
+    }
+
     /**
      * For internal use only - callback to monitor multipart upload progress
      */
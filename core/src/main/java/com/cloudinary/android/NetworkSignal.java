@@ -0,0 +1,25 @@
+package com.cloudinary.android;
+
+/**
+ * Source of the type of the current network, used to choose the starting point when auto tuning the number of
+ * concurrent uploads (see {@link com.cloudinary.android.policy.GlobalUploadPolicy.Builder#autotuneConcurrency(int)}).
+ * The default implementation queries the android connectivity service, set a different one using
+ * {@link MediaManager#setNetworkSignal(NetworkSignal)}.
+ */
+public interface NetworkSignal {
+
+    enum NetworkType {
+        NONE,
+        SLOW_CELLULAR,
+        FAST_CELLULAR,
+        WIFI,
+        UNKNOWN
+    }
+
+    /**
+     * Called on the threads running the uploads, every few seconds while uploads are running.
+     *
+     * @return The type of the current network.
+     */
+    NetworkType getNetworkType();
+}
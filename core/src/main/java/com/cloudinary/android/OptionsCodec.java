@@ -0,0 +1,232 @@
+package com.cloudinary.android;
+
+import com.cloudinary.Transformation;
+import com.cloudinary.utils.Base64Coder;
+import com.cloudinary.utils.ObjectUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes upload options to a string to persist them with the request, and back.
+ * Options made of strings, numbers, booleans, string arrays, lists, nested maps and plain {@link Transformation}s are
+ * written in a compact tagged binary format, prefixed with its version ("c1:"). Options with any other value are
+ * written using java serialization, which is also what requests persisted by older versions contain - decoding
+ * tells the two apart by the prefix, which java serialization in base64 never starts with.
+ */
+class OptionsCodec {
+    static final int VERSION = 1;
+    private static final String PREFIX = "c" + VERSION + ":";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte INTEGER = 4;
+    private static final byte LONG = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte MAP = 8;
+    private static final byte LIST = 9;
+    private static final byte STRING_ARRAY = 10;
+    private static final byte TRANSFORMATION = 11;
+
+    private OptionsCodec() {
+    }
+
+    static String encode(Map<String, Object> options) throws IOException {
+        if (!isSupported(options)) {
+            return ObjectUtils.serialize(options);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeValue(out, options);
+        out.flush();
+        return PREFIX + new String(Base64Coder.encode(bytes.toByteArray()));
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> decode(String encoded) throws IOException, ClassNotFoundException {
+        if (!encoded.startsWith(PREFIX)) {
+            if (encoded.length() > 2 && encoded.charAt(0) == 'c' && encoded.charAt(2) == ':') {
+                throw new IOException("Unsupported options format version: " + encoded.charAt(1));
+            }
+
+            return (Map<String, Object>) ObjectUtils.deserialize(encoded);
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Base64Coder.decode(encoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted options", e);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        Object options = readValue(in);
+        if (!(options instanceof Map)) {
+            throw new IOException("Corrupted options");
+        }
+
+        return (Map<String, Object>) options;
+    }
+
+    private static boolean isSupported(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Integer
+                || value instanceof Long || value instanceof Float || value instanceof Double || value instanceof String[]) {
+            return true;
+        }
+
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!(entry.getKey() instanceof String) || !isSupported(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (!isSupported(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // subclasses (e.g. EagerTransformation) carry more than the generated transformation
+        return value.getClass() == Transformation.class;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(out, (String) entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof String[]) {
+            String[] array = (String[]) value;
+            out.writeByte(STRING_ARRAY);
+            out.writeInt(array.length);
+            for (String item : array) {
+                writeValue(out, item);
+            }
+        } else {
+            // the uploader only ever uses the generated string of a transformation
+            out.writeByte(TRANSFORMATION);
+            writeString(out, ((Transformation) value).generate());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case MAP: {
+                int size = readSize(in);
+                Map<String, Object> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case LIST: {
+                int size = readSize(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case STRING_ARRAY: {
+                String[] array = new String[readSize(in)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (String) readValue(in);
+                }
+                return array;
+            }
+            case TRANSFORMATION:
+                return new Transformation().rawTransformation(readString(in));
+            default:
+                throw new IOException("Corrupted options, unknown value type " + tag);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        // writeUTF is limited to 64KB
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readSize(in)];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static int readSize(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > in.available()) {
+            throw new IOException("Corrupted options, invalid size " + size);
+        }
+
+        return size;
+    }
+}
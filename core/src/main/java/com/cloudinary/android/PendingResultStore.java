@@ -0,0 +1,221 @@
+package com.cloudinary.android;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.cloudinary.android.callback.ErrorInfo;
+import com.cloudinary.android.callback.UploadResult;
+import com.cloudinary.utils.ObjectUtils;
+
+import org.cloudinary.json.JSONException;
+import org.cloudinary.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the results of finished requests until they are fetched using {@link MediaManager#popPendingResult(String)},
+ * usually by the {@link com.cloudinary.android.callback.ListenerService}. Most apps never fetch them, so the store keeps
+ * up to {@link #MAX_ENTRIES} results in memory for up to {@link #RESULT_TTL_MILLIS}. With spillover enabled, results
+ * pushed out of memory while still fresh are saved on disk (up to {@link #MAX_SPILLED_ENTRIES}) instead of being
+ * dropped. Dropped results are counted in {@link UploadMetrics}.
+ */
+class PendingResultStore {
+    static final int MAX_ENTRIES = 100;
+    static final int MAX_SPILLED_ENTRIES = 500;
+    static final long RESULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final String TAG = PendingResultStore.class.getSimpleName();
+    private static final String PREFS_NAME = "com.cloudinary.android.pending_results";
+    private static final String RESULT_PREFIX = "r:";
+    private static final String SAVED_PREFIX = "t:";
+    private static final String RESULT_DATA = "data";
+    private static final String ERROR_CODE = "code";
+    private static final String ERROR_DESCRIPTION = "description";
+
+    private final UploadMetrics metrics;
+    private final Context context;
+    // insertion ordered, the eldest entry is always the first to expire. Guarded by this.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private SharedPreferences preferences;
+
+    /**
+     * @param context Android context to save results on disk, or null to keep them in memory only.
+     * @param metrics Metrics to count the results dropped before being fetched.
+     */
+    PendingResultStore(Context context, UploadMetrics metrics) {
+        this.context = context != null ? context.getApplicationContext() : null;
+        this.metrics = metrics;
+    }
+
+    void put(String requestId, UploadResult result) {
+        put(requestId, result, System.currentTimeMillis());
+    }
+
+    /**
+     * @return The result of the request, or null if there is none or it was dropped.
+     */
+    UploadResult pop(String requestId) {
+        return pop(requestId, System.currentTimeMillis());
+    }
+
+    synchronized void put(String requestId, UploadResult result, long now) {
+        // a newer result of the same request replaces the old one and moves to the end of the line
+        entries.remove(requestId);
+        entries.put(requestId, new Entry(result, now));
+        if (context != null && getPreferences().contains(RESULT_PREFIX + requestId)) {
+            getPreferences().edit().remove(RESULT_PREFIX + requestId).remove(SAVED_PREFIX + requestId).apply();
+        }
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (isExpired(eldest.getValue().savedAt, now)) {
+                metrics.getExpiredResults().increment();
+            } else if (entries.size() > MAX_ENTRIES) {
+                if (context != null) {
+                    spill(eldest.getKey(), eldest.getValue(), now);
+                } else {
+                    metrics.getEvictedResults().increment();
+                }
+            } else {
+                break;
+            }
+
+            iterator.remove();
+        }
+    }
+
+    synchronized UploadResult pop(String requestId, long now) {
+        Entry entry = entries.remove(requestId);
+        if (entry == null && context != null) {
+            entry = unspill(requestId);
+        }
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (isExpired(entry.savedAt, now)) {
+            metrics.getExpiredResults().increment();
+            return null;
+        }
+
+        return entry.result;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private SharedPreferences getPreferences() {
+        if (preferences == null) {
+            // loaded on first use, most apps never get here
+            preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        }
+
+        return preferences;
+    }
+
+    private void spill(String requestId, Entry entry, long now) {
+        String json;
+        try {
+            json = toJson(entry.result).toString();
+        } catch (JSONException e) {
+            Logger.e(TAG, String.format("Could not save the result of request %s, dropping.", requestId), e);
+            metrics.getEvictedResults().increment();
+            return;
+        }
+
+        final Map<String, ?> all = getPreferences().getAll();
+        SharedPreferences.Editor editor = getPreferences().edit()
+                .putString(RESULT_PREFIX + requestId, json)
+                .putLong(SAVED_PREFIX + requestId, entry.savedAt);
+
+        List<String> spilled = new ArrayList<>();
+        for (Map.Entry<String, ?> saved : all.entrySet()) {
+            if (saved.getKey().startsWith(SAVED_PREFIX)) {
+                String savedRequestId = saved.getKey().substring(SAVED_PREFIX.length());
+                if (isExpired((Long) saved.getValue(), now)) {
+                    editor.remove(RESULT_PREFIX + savedRequestId).remove(saved.getKey());
+                    metrics.getExpiredResults().increment();
+                } else {
+                    spilled.add(savedRequestId);
+                }
+            }
+        }
+
+        if (spilled.size() >= MAX_SPILLED_ENTRIES) {
+            Collections.sort(spilled, new Comparator<String>() {
+                @Override
+                public int compare(String first, String second) {
+                    return Long.compare((Long) all.get(SAVED_PREFIX + first), (Long) all.get(SAVED_PREFIX + second));
+                }
+            });
+
+            for (String evicted : spilled.subList(0, spilled.size() - MAX_SPILLED_ENTRIES + 1)) {
+                editor.remove(RESULT_PREFIX + evicted).remove(SAVED_PREFIX + evicted);
+                metrics.getEvictedResults().increment();
+            }
+        }
+
+        editor.apply();
+        metrics.getSpilledResults().increment();
+    }
+
+    private Entry unspill(String requestId) {
+        String json = getPreferences().getString(RESULT_PREFIX + requestId, null);
+        if (json == null) {
+            return null;
+        }
+
+        long savedAt = getPreferences().getLong(SAVED_PREFIX + requestId, 0);
+        getPreferences().edit().remove(RESULT_PREFIX + requestId).remove(SAVED_PREFIX + requestId).apply();
+        try {
+            return new Entry(fromJson(new JSONObject(json)), savedAt);
+        } catch (JSONException e) {
+            Logger.e(TAG, String.format("Corrupted result for request %s, discarding.", requestId), e);
+            return null;
+        }
+    }
+
+    private static boolean isExpired(long savedAt, long now) {
+        return now - savedAt > RESULT_TTL_MILLIS;
+    }
+
+    private static JSONObject toJson(UploadResult result) {
+        JSONObject jsonObject = new JSONObject();
+        if (result.getError() != null) {
+            jsonObject.put(ERROR_CODE, result.getError().getCode());
+            jsonObject.put(ERROR_DESCRIPTION, result.getError().getDescription());
+        } else if (result.getSuccessResultData() != null) {
+            jsonObject.put(RESULT_DATA, ObjectUtils.toJSON(result.getSuccessResultData()));
+        }
+
+        return jsonObject;
+    }
+
+    private static UploadResult fromJson(JSONObject jsonObject) {
+        if (jsonObject.has(ERROR_CODE)) {
+            return new UploadResult(null, new ErrorInfo(jsonObject.getInt(ERROR_CODE), jsonObject.optString(ERROR_DESCRIPTION, null)));
+        }
+
+        JSONObject data = jsonObject.optJSONObject(RESULT_DATA);
+        return new UploadResult(data != null ? ObjectUtils.toMap(data) : null, null);
+    }
+
+    private static final class Entry {
+        private final UploadResult result;
+        private final long savedAt;
+
+        private Entry(UploadResult result, long savedAt) {
+            this.result = result;
+            this.savedAt = savedAt;
+        }
+    }
+}
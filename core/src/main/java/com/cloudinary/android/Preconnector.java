@@ -0,0 +1,67 @@
+package com.cloudinary.android;
+
+import com.cloudinary.android.transport.HttpTransport;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+
+/**
+ * Warms up a connection to the upload endpoint: resolves the host and sends a lightweight request, leaving a
+ * kept-alive connection in the transport's pool for the first real upload to reuse.
+ */
+class Preconnector implements Runnable {
+    private static final String TAG = Preconnector.class.getSimpleName();
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private final String uploadUrl;
+    private volatile long lastWarmUpMillis = -1;
+
+    Preconnector(String uploadUrl) {
+        this.uploadUrl = uploadUrl;
+    }
+
+    @Override
+    public void run() {
+        long start = System.currentTimeMillis();
+        HttpTransport transport = UploaderStrategy.getHttpTransport();
+        HttpURLConnection connection = null;
+        boolean reusable = false;
+        try {
+            URL url = new URL(uploadUrl);
+            InetAddress.getAllByName(url.getHost());
+
+            connection = transport.openConnection(url);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setRequestMethod("HEAD");
+            connection.setRequestProperty("User-Agent", MultipartUtility.USER_AGENT);
+
+            // any response means the connection is established, the status itself doesn't matter:
+            int code = connection.getResponseCode();
+            InputStream stream = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (stream != null) {
+                stream.close();
+            }
+
+            reusable = true;
+            lastWarmUpMillis = System.currentTimeMillis() - start;
+            Logger.d(TAG, String.format("Connection to %s warmed up in %d ms.", url.getHost(), lastWarmUpMillis));
+        } catch (Exception e) {
+            Logger.e(TAG, "Could not warm up a connection to the upload endpoint.", e);
+        } finally {
+            if (connection != null) {
+                transport.releaseConnection(connection, reusable);
+            }
+        }
+    }
+
+    /**
+     * @return The duration of the last successful warm up in milliseconds, including dns resolution, or -1 if there
+     * was none.
+     */
+    long getLastWarmUpMillis() {
+        return lastWarmUpMillis;
+    }
+}
@@ -0,0 +1,268 @@
+package com.cloudinary.android;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.cloudinary.android.callback.UploadStatus;
+import com.cloudinary.android.payload.ByteArrayPayload;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Journal of the requests dispatched to the background strategy and of the checkpoints of chunked uploads, kept in a
+ * SQLite database so every change is atomic and survives the process being killed at any point.
+ * A request is added as {@link #STATE_QUEUED} when dispatched, is {@link #STATE_RUNNING} during each attempt and
+ * ends up {@link #STATE_SUCCEEDED} or {@link #STATE_FAILED}. The state is indexed, counting the requests in a state
+ * doesn't go through the job framework. Finished requests, stale checkpoints and payload files no request references
+ * are removed by {@link #compact(Context)}.
+ */
+class RequestJournal extends SQLiteOpenHelper {
+    static final int STATE_QUEUED = 0;
+    static final int STATE_RUNNING = 1;
+    static final int STATE_SUCCEEDED = 2;
+    static final int STATE_FAILED = 3;
+    // finished requests and checkpoints of requests that are no longer queued are kept this long
+    static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // payload files are only collected this long after they were written, they may belong to a request being dispatched
+    static final long ORPHAN_MIN_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // payload files of requests dispatched by previous versions, still read by their jobs
+    static final long LEGACY_PAYLOAD_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final String TAG = RequestJournal.class.getSimpleName();
+    private static final String DATABASE_NAME = "cloudinary_requests.db";
+    private static final int DATABASE_VERSION = 1;
+    private static final String REQUESTS = "requests";
+    private static final String CHECKPOINTS = "checkpoints";
+    private static final String REQUEST_ID = "request_id";
+    private static final String STATE = "state";
+    private static final String URI = "uri";
+    private static final String OPTIONS = "options";
+    private static final String MAX_ERROR_RETRIES = "max_error_retries";
+    private static final String PARALLEL_CHUNK_UPLOADS = "parallel_chunk_uploads";
+    private static final String MIN_CHUNK_SIZE = "min_chunk_size";
+    private static final String MAX_CHUNK_SIZE = "max_chunk_size";
+    private static final String MAX_BYTES_PER_SECOND = "max_bytes_per_second";
+    private static final String ERROR_COUNT = "error_count";
+    private static final String OFFSET = "offset";
+    private static final String BUFFER_SIZE = "buffer_size";
+    private static final String UPLOAD_ID = "upload_id";
+    private static final String UPDATED_AT = "updated_at";
+    private static final String ID_SELECTION = REQUEST_ID + "=?";
+    private static final String LIVE_SELECTION = STATE + " IN (" + STATE_QUEUED + "," + STATE_RUNNING + ")";
+    // File.createTempFile("payload", requestId)
+    private static final Pattern LEGACY_PAYLOAD_FILE = Pattern.compile("payload-?\\d+[0-9a-f-]{36}");
+    // loaded before any request of this process is started, running rows updated earlier were left by a previous process
+    private static final long PROCESS_START_MILLIS = System.currentTimeMillis();
+
+    private static RequestJournal instance;
+
+    static synchronized RequestJournal get(Context context) {
+        if (instance == null) {
+            instance = new RequestJournal(context.getApplicationContext());
+        }
+
+        return instance;
+    }
+
+    private RequestJournal(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // writers (the upload threads) don't block readers (e.g. counting requests)
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + REQUESTS + " ("
+                + REQUEST_ID + " TEXT PRIMARY KEY, "
+                + STATE + " INTEGER NOT NULL, "
+                + URI + " TEXT NOT NULL, "
+                + OPTIONS + " TEXT, "
+                + MAX_ERROR_RETRIES + " INTEGER NOT NULL, "
+                + PARALLEL_CHUNK_UPLOADS + " INTEGER NOT NULL, "
+                + MIN_CHUNK_SIZE + " INTEGER NOT NULL, "
+                + MAX_CHUNK_SIZE + " INTEGER NOT NULL, "
+                + MAX_BYTES_PER_SECOND + " INTEGER NOT NULL, "
+                + ERROR_COUNT + " INTEGER NOT NULL DEFAULT 0, "
+                + UPDATED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX " + REQUESTS + "_" + STATE + " ON " + REQUESTS + " (" + STATE + ")");
+        db.execSQL("CREATE TABLE " + CHECKPOINTS + " ("
+                + REQUEST_ID + " TEXT PRIMARY KEY, "
+                + OFFSET + " INTEGER NOT NULL, "
+                + BUFFER_SIZE + " INTEGER NOT NULL, "
+                + UPLOAD_ID + " TEXT NOT NULL, "
+                + UPDATED_AT + " INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    }
+
+    /**
+     * Adds a queued request, replacing any previous request with the same id.
+     */
+    void add(UploadRequest.PayloadData data) {
+        ContentValues values = new ContentValues();
+        values.put(REQUEST_ID, data.getRequestId());
+        values.put(STATE, STATE_QUEUED);
+        values.put(URI, data.getUri());
+        values.put(OPTIONS, data.getOptions());
+        values.put(MAX_ERROR_RETRIES, data.getMaxErrorRetries());
+        values.put(PARALLEL_CHUNK_UPLOADS, data.getParallelChunkUploads());
+        values.put(MIN_CHUNK_SIZE, data.getMinChunkSize());
+        values.put(MAX_CHUNK_SIZE, data.getMaxChunkSize());
+        values.put(MAX_BYTES_PER_SECOND, data.getMaxBytesPerSecond());
+        values.put(UPDATED_AT, System.currentTimeMillis());
+        getWritableDatabase().insertWithOnConflict(REQUESTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Fills the params of the next attempt of a request, including the number of errors of the previous attempts.
+     *
+     * @return False if the request is not queued or running (e.g. it was cancelled, or already finished).
+     */
+    boolean load(String requestId, RequestParams target) {
+        try (Cursor cursor = getReadableDatabase().query(REQUESTS, null, ID_SELECTION + " AND " + LIVE_SELECTION,
+                new String[]{requestId}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return false;
+            }
+
+            target.putString("uri", cursor.getString(cursor.getColumnIndexOrThrow(URI)));
+            target.putString("requestId", requestId);
+            target.putInt("maxErrorRetries", cursor.getInt(cursor.getColumnIndexOrThrow(MAX_ERROR_RETRIES)));
+            target.putInt("parallelChunkUploads", cursor.getInt(cursor.getColumnIndexOrThrow(PARALLEL_CHUNK_UPLOADS)));
+            target.putInt("minChunkSize", cursor.getInt(cursor.getColumnIndexOrThrow(MIN_CHUNK_SIZE)));
+            target.putInt("maxChunkSize", cursor.getInt(cursor.getColumnIndexOrThrow(MAX_CHUNK_SIZE)));
+            target.putLong("maxBytesPerSecond", cursor.getLong(cursor.getColumnIndexOrThrow(MAX_BYTES_PER_SECOND)));
+            target.putString("options", cursor.getString(cursor.getColumnIndexOrThrow(OPTIONS)));
+            target.putInt(DefaultRequestProcessor.ERROR_COUNT_PARAM, cursor.getInt(cursor.getColumnIndexOrThrow(ERROR_COUNT)));
+            return true;
+        }
+    }
+
+    void started(String requestId) {
+        ContentValues values = new ContentValues();
+        values.put(STATE, STATE_RUNNING);
+        values.put(UPDATED_AT, System.currentTimeMillis());
+        getWritableDatabase().update(REQUESTS, values, ID_SELECTION, new String[]{requestId});
+    }
+
+    /**
+     * Records the result of an attempt. A rescheduled request is queued again with its updated error count.
+     */
+    void finished(String requestId, UploadStatus status, int errorCount) {
+        ContentValues values = new ContentValues();
+        switch (status) {
+            case SUCCESS:
+                values.put(STATE, STATE_SUCCEEDED);
+                break;
+            case FAILURE:
+                values.put(STATE, STATE_FAILED);
+                break;
+            default:
+                values.put(STATE, STATE_QUEUED);
+                values.put(ERROR_COUNT, errorCount);
+        }
+
+        values.put(UPDATED_AT, System.currentTimeMillis());
+        getWritableDatabase().update(REQUESTS, values, ID_SELECTION, new String[]{requestId});
+    }
+
+    void remove(String requestId) {
+        getWritableDatabase().delete(REQUESTS, ID_SELECTION, new String[]{requestId});
+    }
+
+    /**
+     * Removes all the requests that did not finish yet.
+     *
+     * @return The number of removed requests.
+     */
+    int removeAll() {
+        return getWritableDatabase().delete(REQUESTS, LIVE_SELECTION, null);
+    }
+
+    int count(int state) {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), REQUESTS, STATE + "=?", new String[]{String.valueOf(state)});
+    }
+
+    UploadCheckpointStore.Checkpoint getCheckpoint(String requestId) {
+        try (Cursor cursor = getReadableDatabase().query(CHECKPOINTS, new String[]{OFFSET, BUFFER_SIZE, UPLOAD_ID},
+                ID_SELECTION, new String[]{requestId}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+
+            return new UploadCheckpointStore.Checkpoint(cursor.getLong(0), cursor.getInt(1), cursor.getString(2));
+        }
+    }
+
+    void saveCheckpoint(String requestId, UploadCheckpointStore.Checkpoint checkpoint) {
+        ContentValues values = new ContentValues();
+        values.put(REQUEST_ID, requestId);
+        values.put(OFFSET, checkpoint.getOffset());
+        values.put(BUFFER_SIZE, checkpoint.getBufferSize());
+        values.put(UPLOAD_ID, checkpoint.getUploadId());
+        values.put(UPDATED_AT, System.currentTimeMillis());
+        getWritableDatabase().insertWithOnConflict(CHECKPOINTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    void removeCheckpoint(String requestId) {
+        getWritableDatabase().delete(CHECKPOINTS, ID_SELECTION, new String[]{requestId});
+    }
+
+    /**
+     * Removes finished requests and stale checkpoints, and deletes the payload files no queued request references.
+     * Requests left running by a previous process are queued again, their jobs will run them again - requests started
+     * by this process are running concurrently and are left as they are. Meant to run once, in the background, when
+     * the process starts.
+     */
+    void compact(Context context) {
+        long now = System.currentTimeMillis();
+        String[] expiry = new String[]{String.valueOf(now - RETENTION_MILLIS)};
+        Set<String> liveRequestIds = new HashSet<>();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(STATE, STATE_QUEUED);
+            int interrupted = db.update(REQUESTS, values, STATE + "=" + STATE_RUNNING + " AND " + UPDATED_AT + "<?",
+                    new String[]{String.valueOf(PROCESS_START_MILLIS)});
+            int finished = db.delete(REQUESTS, "NOT " + LIVE_SELECTION + " AND " + UPDATED_AT + "<?", expiry);
+            int checkpoints = db.delete(CHECKPOINTS, UPDATED_AT + "<? AND " + REQUEST_ID + " NOT IN (SELECT " + REQUEST_ID
+                    + " FROM " + REQUESTS + " WHERE " + LIVE_SELECTION + ")", expiry);
+            try (Cursor cursor = db.query(REQUESTS, new String[]{REQUEST_ID}, LIVE_SELECTION, null, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    liveRequestIds.add(cursor.getString(0));
+                }
+            }
+
+            db.setTransactionSuccessful();
+            Logger.d(TAG, String.format("Compacted the request journal: %d interrupted, %d finished and %d checkpoints removed.",
+                    interrupted, finished, checkpoints));
+        } finally {
+            db.endTransaction();
+        }
+
+        int blobs = ByteArrayPayload.deleteBlobsExcept(context, liveRequestIds, now - ORPHAN_MIN_AGE_MILLIS);
+        int legacyFiles = 0;
+        File[] files = context.getCacheDir().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (LEGACY_PAYLOAD_FILE.matcher(file.getName()).matches()
+                        && file.lastModified() < now - LEGACY_PAYLOAD_MAX_AGE_MILLIS && file.delete()) {
+                    legacyFiles++;
+                }
+            }
+        }
+
+        Logger.d(TAG, String.format("Deleted %d orphaned payloads and %d legacy payload files.", blobs, legacyFiles));
+    }
+}
@@ -0,0 +1,30 @@
+package com.cloudinary.android;
+
+import com.cloudinary.android.payload.PositionalSource;
+
+/**
+ * A range of a {@link PositionalSource} to be sent as the file part of a single upload call, see {@link ChunkedUploader}.
+ */
+final class SourceRange {
+    private final PositionalSource source;
+    private final long position;
+    private final long length;
+
+    SourceRange(PositionalSource source, long position, long length) {
+        this.source = source;
+        this.position = position;
+        this.length = length;
+    }
+
+    PositionalSource getSource() {
+        return source;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    long getLength() {
+        return length;
+    }
+}
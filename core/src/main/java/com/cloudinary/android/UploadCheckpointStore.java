@@ -0,0 +1,94 @@
+package com.cloudinary.android;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.cloudinary.json.JSONException;
+import org.cloudinary.json.JSONObject;
+
+/**
+ * Persists the progress of chunked uploads, keyed by request id, so a request that is retried by the background
+ * strategy resumes from the last chunk acknowledged by the server instead of starting over.
+ * Checkpoints are kept in the {@link RequestJournal}, checkpoints saved by previous versions in shared preferences are
+ * still read.
+ */
+class UploadCheckpointStore {
+    private static final String TAG = UploadCheckpointStore.class.getSimpleName();
+    private static final String PREFS_NAME = "com.cloudinary.android.upload_checkpoints";
+    private static final String OFFSET = "offset";
+    private static final String BUFFER_SIZE = "bufferSize";
+    private static final String UPLOAD_ID = "uploadId";
+
+    private final RequestJournal journal;
+    private final SharedPreferences preferences;
+
+    UploadCheckpointStore(Context context) {
+        journal = RequestJournal.get(context);
+        preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @return The last checkpoint saved for the request, or null if there is none.
+     */
+    Checkpoint get(String requestId) {
+        Checkpoint checkpoint = journal.getCheckpoint(requestId);
+        if (checkpoint != null) {
+            return checkpoint;
+        }
+
+        String json = preferences.getString(requestId, null);
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            JSONObject jsonObject = new JSONObject(json);
+            return new Checkpoint(jsonObject.getLong(OFFSET), jsonObject.getInt(BUFFER_SIZE), jsonObject.getString(UPLOAD_ID));
+        } catch (JSONException e) {
+            Logger.e(TAG, String.format("Corrupted checkpoint for request %s, discarding.", requestId), e);
+            preferences.edit().remove(requestId).commit();
+            return null;
+        }
+    }
+
+    /**
+     * Saves the checkpoint synchronously - the process may be killed at any time during an upload.
+     */
+    void save(String requestId, Checkpoint checkpoint) {
+        journal.saveCheckpoint(requestId, checkpoint);
+    }
+
+    void remove(String requestId) {
+        journal.removeCheckpoint(requestId);
+        if (preferences.contains(requestId)) {
+            preferences.edit().remove(requestId).commit();
+        }
+    }
+
+    static final class Checkpoint {
+        private final long offset;
+        private final int bufferSize;
+        private final String uploadId;
+
+        Checkpoint(long offset, int bufferSize, String uploadId) {
+            this.offset = offset;
+            this.bufferSize = bufferSize;
+            this.uploadId = uploadId;
+        }
+
+        /**
+         * @return The position up to which all the chunks were acknowledged by the server.
+         */
+        long getOffset() {
+            return offset;
+        }
+
+        int getBufferSize() {
+            return bufferSize;
+        }
+
+        String getUploadId() {
+            return uploadId;
+        }
+    }
+}
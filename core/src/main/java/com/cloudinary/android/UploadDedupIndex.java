@@ -0,0 +1,286 @@
+package com.cloudinary.android;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.cloudinary.android.payload.PositionalSource;
+import com.cloudinary.utils.ObjectUtils;
+
+import org.cloudinary.json.JSONException;
+import org.cloudinary.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent index of previous upload results keyed by the content hash of the payload and a fingerprint of the
+ * upload options, used to skip uploading a payload that was already uploaded with identical options.
+ * The index holds up to {@link #MAX_ENTRIES} results, evicting the least recently used ones, and forgets results not
+ * used for {@link #MAX_AGE_MILLIS}. Only the {@link #REPLAYED_FIELDS} of each result are kept.
+ * The order of use is tracked in memory, it's read from the preferences once per process.
+ */
+class UploadDedupIndex {
+    /**
+     * Upload option enabling deduplication of the request, see {@link UploadRequest#deduplicate()}.
+     */
+    static final String OPTION = "deduplicate";
+    static final int MAX_ENTRIES = 200;
+    static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+    // the fields of an upload result reported to a deduplicated request, identifying and delivering the resource:
+    static final List<String> REPLAYED_FIELDS = Arrays.asList("public_id", "asset_id", "version", "version_id",
+            "signature", "resource_type", "type", "format", "width", "height", "pages", "duration", "bytes", "etag",
+            "tags", "created_at", "original_filename", "url", "secure_url");
+    private static final String TAG = UploadDedupIndex.class.getSimpleName();
+    private static final String PREFS_NAME = "com.cloudinary.android.upload_dedup_index";
+    private static final String RESULT_PREFIX = "r:";
+    private static final String LAST_USED_PREFIX = "t:";
+    // options that don't affect the upload result, a pre-signed request has a different signature every time:
+    private static final List<String> IGNORED_OPTIONS = Arrays.asList(OPTION, "signature", "timestamp",
+            UploaderStrategy.BANDWIDTH_LIMITER_OPTION, UploaderStrategy.CONTENT_DIGEST_INSTANCE_OPTION,
+            UploaderStrategy.EVENT_LISTENER_OPTION, UploaderStrategy.REQUEST_ID_OPTION, UploaderStrategy.METRICS_OPTION);
+    // instances are short lived, the lock guards the index and the read-modify-write sequences across all of them:
+    private static final Object lock = new Object();
+    // from the least to the most recently used
+    private static final LinkedHashMap<String, IndexEntry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private static boolean indexLoaded;
+
+    private final SharedPreferences preferences;
+
+    UploadDedupIndex(Context context) {
+        preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Builds the index key of a payload. This reads the entire payload.
+     *
+     * @param source  The payload content.
+     * @param options The upload options of the request, before any runtime options are added.
+     * @return The key of the payload and options.
+     */
+    static String key(PositionalSource source, Map<String, Object> options) throws IOException {
+        Map<String, Object> fingerprinted = new TreeMap<>(options);
+        fingerprinted.keySet().removeAll(IGNORED_OPTIONS);
+        StringBuilder canonicalOptions = new StringBuilder();
+        appendCanonical(canonicalOptions, fingerprinted);
+        return ContentDigest.sha256(source) + ":" + sha256(canonicalOptions.toString());
+    }
+
+    /**
+     * @return The result of the previous upload with the given key, or null if there is none.
+     */
+    Map<String, Object> get(String key) {
+        return get(key, System.currentTimeMillis());
+    }
+
+    Map<String, Object> get(String key, long now) {
+        synchronized (lock) {
+            loadIndex();
+            IndexEntry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            String json = preferences.getString(RESULT_PREFIX + key, null);
+            if (json == null || now - entry.lastUsed > MAX_AGE_MILLIS) {
+                remove(key);
+                return null;
+            }
+
+            try {
+                Map<String, Object> result = ObjectUtils.toMap(new JSONObject(json));
+                entry.lastUsed = now;
+                preferences.edit().putLong(LAST_USED_PREFIX + key, now).apply();
+                return result;
+            } catch (JSONException e) {
+                Logger.e(TAG, "Corrupted upload result in the dedup index, discarding.", e);
+                remove(key);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Saves the result of an upload, evicting the least recently used results if the index is full.
+     */
+    void put(String key, Map result) {
+        put(key, result, System.currentTimeMillis());
+    }
+
+    @SuppressWarnings("unchecked")
+    void put(String key, Map result, long now) {
+        Map<String, Object> replayed = new HashMap<>();
+        for (String field : REPLAYED_FIELDS) {
+            if (result.get(field) != null) {
+                replayed.put(field, result.get(field));
+            }
+        }
+
+        String json;
+        try {
+            json = ObjectUtils.toJSON(replayed).toString();
+        } catch (JSONException e) {
+            Logger.e(TAG, "Could not save the upload result in the dedup index.", e);
+            return;
+        }
+
+        synchronized (lock) {
+            loadIndex();
+            index.put(key, new IndexEntry(now, ObjectUtils.asString(replayed.get("public_id"))));
+            SharedPreferences.Editor editor = preferences.edit()
+                    .putString(RESULT_PREFIX + key, json)
+                    .putLong(LAST_USED_PREFIX + key, now);
+
+            // the least recently used results are first, stop at the first one that is kept:
+            Iterator<Map.Entry<String, IndexEntry>> iterator = index.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, IndexEntry> eldest = iterator.next();
+                if (index.size() <= MAX_ENTRIES && now - eldest.getValue().lastUsed <= MAX_AGE_MILLIS) {
+                    break;
+                }
+
+                editor.remove(RESULT_PREFIX + eldest.getKey()).remove(LAST_USED_PREFIX + eldest.getKey());
+                iterator.remove();
+            }
+
+            editor.apply();
+        }
+    }
+
+    /**
+     * Removes the results of all the uploads of the given public id, e.g. after the resource was deleted.
+     *
+     * @return The number of removed results.
+     */
+    int invalidate(String publicId) {
+        synchronized (lock) {
+            loadIndex();
+            SharedPreferences.Editor editor = preferences.edit();
+            int removed = 0;
+            Iterator<Map.Entry<String, IndexEntry>> iterator = index.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, IndexEntry> entry = iterator.next();
+                if (publicId.equals(entry.getValue().publicId)) {
+                    editor.remove(RESULT_PREFIX + entry.getKey()).remove(LAST_USED_PREFIX + entry.getKey());
+                    iterator.remove();
+                    removed++;
+                }
+            }
+
+            editor.apply();
+            return removed;
+        }
+    }
+
+    void clear() {
+        synchronized (lock) {
+            preferences.edit().clear().apply();
+            index.clear();
+            indexLoaded = true;
+        }
+    }
+
+    private void remove(String key) {
+        index.remove(key);
+        preferences.edit().remove(RESULT_PREFIX + key).remove(LAST_USED_PREFIX + key).apply();
+    }
+
+    /**
+     * Reads the order of use and the public ids of the saved results, the only time the entire index is read.
+     */
+    private void loadIndex() {
+        if (indexLoaded) {
+            return;
+        }
+
+        Map<String, ?> all = preferences.getAll();
+        List<Map.Entry<String, IndexEntry>> entries = new ArrayList<>();
+        for (Map.Entry<String, ?> saved : all.entrySet()) {
+            if (saved.getKey().startsWith(LAST_USED_PREFIX) && saved.getValue() instanceof Long) {
+                String key = saved.getKey().substring(LAST_USED_PREFIX.length());
+                Object json = all.get(RESULT_PREFIX + key);
+                if (json instanceof String) {
+                    entries.add(new AbstractMap.SimpleEntry<>(key, new IndexEntry((Long) saved.getValue(), publicIdOf((String) json))));
+                }
+            }
+        }
+
+        Collections.sort(entries, new Comparator<Map.Entry<String, IndexEntry>>() {
+            @Override
+            public int compare(Map.Entry<String, IndexEntry> first, Map.Entry<String, IndexEntry> second) {
+                return Long.compare(first.getValue().lastUsed, second.getValue().lastUsed);
+            }
+        });
+
+        for (Map.Entry<String, IndexEntry> entry : entries) {
+            index.put(entry.getKey(), entry.getValue());
+        }
+
+        indexLoaded = true;
+    }
+
+    private static String publicIdOf(String json) {
+        try {
+            return new JSONObject(json).optString("public_id", null);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Appends a representation of the value that doesn't depend on the iteration order of maps.
+     */
+    private static void appendCanonical(StringBuilder builder, Object value) {
+        if (value instanceof Map) {
+            builder.append('{');
+            for (Map.Entry<?, ?> entry : new TreeMap<>((Map<?, ?>) value).entrySet()) {
+                builder.append(JSONObject.quote(entry.getKey().toString())).append(':');
+                appendCanonical(builder, entry.getValue());
+                builder.append(',');
+            }
+            builder.append('}');
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            builder.append('[');
+            for (Object item : value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value)) {
+                appendCanonical(builder, item);
+                builder.append(',');
+            }
+            builder.append(']');
+        } else {
+            builder.append(JSONObject.quote(String.valueOf(value)));
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            return ContentDigest.toHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(Charset.forName("UTF-8"))));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported on all platforms
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class IndexEntry {
+        private final String publicId;
+        private long lastUsed;
+
+        IndexEntry(long lastUsed, String publicId) {
+            this.lastUsed = lastUsed;
+            this.publicId = publicId;
+        }
+    }
+}
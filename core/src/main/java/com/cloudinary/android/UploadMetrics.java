@@ -0,0 +1,237 @@
+package com.cloudinary.android;
+
+import com.cloudinary.android.metrics.Counter;
+import com.cloudinary.android.metrics.Histogram;
+import com.cloudinary.android.transport.ConnectionMetrics;
+import com.cloudinary.android.transport.HttpTransport;
+import com.cloudinary.android.transport.KeepAliveHttpTransport;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counters and histograms of the upload pipeline, see {@link MediaManager#getMetrics()}.
+ * All the instruments are lock-free and cheap to update, and cover the requests processed by this process since
+ * it started. Use {@link #snapshot()} to export all of them at once.
+ */
+public final class UploadMetrics {
+    private final Set<String> queuedRequests = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Counter inFlightRequests = new Counter();
+    private final Counter inFlightBytes = new Counter();
+    private final Counter uploadedBytes = new Counter();
+    private final Counter succeededRequests = new Counter();
+    private final Counter failedRequests = new Counter();
+    private final Counter rescheduledRequests = new Counter();
+    private final Counter retries = new Counter();
+    private final Counter overflowedRequests = new Counter();
+    private final Counter failedChunks = new Counter();
+    private final Counter expiredResults = new Counter();
+    private final Counter evictedResults = new Counter();
+    private final Counter spilledResults = new Counter();
+    private final Histogram requestThroughput = new Histogram();
+    private final Histogram chunkLatency = new Histogram();
+    private final Histogram preprocessDuration = new Histogram();
+    private final Histogram immediateQueueWait = new Histogram();
+    private final ConcurrentMap<Integer, Counter> errors = new ConcurrentHashMap<>();
+
+    UploadMetrics() {
+    }
+
+    /**
+     * @return The number of requests dispatched by this process that did not start running yet.
+     */
+    public int getQueueDepth() {
+        return queuedRequests.size();
+    }
+
+    public Counter getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    /**
+     * @return The bytes of the chunks currently being sent.
+     */
+    public Counter getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    /**
+     * @return The bytes of all the chunks acknowledged by the server.
+     */
+    public Counter getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public Counter getSucceededRequests() {
+        return succeededRequests;
+    }
+
+    public Counter getFailedRequests() {
+        return failedRequests;
+    }
+
+    public Counter getRescheduledRequests() {
+        return rescheduledRequests;
+    }
+
+    /**
+     * @return The number of attempts that were retries of a previously failed attempt.
+     */
+    public Counter getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return The number of chunks that failed to upload, including chunks that were retried.
+     */
+    public Counter getFailedChunks() {
+        return failedChunks;
+    }
+
+    /**
+     * @return The number of requests started with {@link UploadRequest#startNow(android.content.Context)} that were
+     * dispatched to run in the background instead, since too many immediate requests were already waiting to run.
+     */
+    public Counter getOverflowedRequests() {
+        return overflowedRequests;
+    }
+
+    /**
+     * @return The number of pending results (see {@link MediaManager#popPendingResult(String)}) dropped because they
+     * were not fetched in time.
+     */
+    public Counter getExpiredResults() {
+        return expiredResults;
+    }
+
+    /**
+     * @return The number of pending results dropped, before they expired, to make room for newer ones.
+     */
+    public Counter getEvictedResults() {
+        return evictedResults;
+    }
+
+    /**
+     * @return The number of pending results moved from memory to disk to make room for newer ones.
+     */
+    public Counter getSpilledResults() {
+        return spilledResults;
+    }
+
+    /**
+     * @return The throughput of each successful attempt, in bytes per second.
+     */
+    public Histogram getRequestThroughput() {
+        return requestThroughput;
+    }
+
+    /**
+     * @return The time it took to send each chunk and receive its response, in milliseconds.
+     */
+    public Histogram getChunkLatency() {
+        return chunkLatency;
+    }
+
+    /**
+     * @return The duration of each preprocessing of a request, in milliseconds.
+     */
+    public Histogram getPreprocessDuration() {
+        return preprocessDuration;
+    }
+
+    /**
+     * @return The time each request started with {@link UploadRequest#startNow(android.content.Context)} waited for a
+     * free thread, in milliseconds.
+     */
+    public Histogram getImmediateQueueWait() {
+        return immediateQueueWait;
+    }
+
+    /**
+     * @return The number of errors with the given {@link com.cloudinary.android.callback.ErrorInfo} code, including
+     * errors of attempts that were rescheduled.
+     */
+    public long getErrors(int errorCode) {
+        Counter counter = errors.get(errorCode);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Exports the current values of all the instruments under stable names. Histograms are exported as their count,
+     * sum, max and 50th, 90th and 99th percentiles (e.g. "chunk.latency_ms.p90"), error counts as "errors.{code}" and
+     * the metrics of the http transport, if available, under "connections.".
+     *
+     * @return The values, sorted by name.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        snapshot.put("requests.queued", (long) getQueueDepth());
+        snapshot.put("requests.in_flight", inFlightRequests.get());
+        snapshot.put("requests.succeeded", succeededRequests.get());
+        snapshot.put("requests.failed", failedRequests.get());
+        snapshot.put("requests.rescheduled", rescheduledRequests.get());
+        snapshot.put("requests.retries", retries.get());
+        snapshot.put("requests.overflowed", overflowedRequests.get());
+        snapshot.put("bytes.in_flight", inFlightBytes.get());
+        snapshot.put("bytes.uploaded", uploadedBytes.get());
+        snapshot.put("chunks.failed", failedChunks.get());
+        snapshot.put("results.expired", expiredResults.get());
+        snapshot.put("results.evicted", evictedResults.get());
+        snapshot.put("results.spilled", spilledResults.get());
+        putHistogram(snapshot, "requests.throughput_bps", requestThroughput);
+        putHistogram(snapshot, "chunk.latency_ms", chunkLatency);
+        putHistogram(snapshot, "preprocess.duration_ms", preprocessDuration);
+        putHistogram(snapshot, "immediate.queue_wait_ms", immediateQueueWait);
+        for (Map.Entry<Integer, Counter> entry : errors.entrySet()) {
+            snapshot.put("errors." + entry.getKey(), entry.getValue().get());
+        }
+
+        HttpTransport transport = UploaderStrategy.getHttpTransport();
+        if (transport instanceof KeepAliveHttpTransport) {
+            ConnectionMetrics connectionMetrics = ((KeepAliveHttpTransport) transport).getMetrics();
+            snapshot.put("connections.requests", connectionMetrics.getRequests());
+            snapshot.put("connections.discarded", connectionMetrics.getDiscardedConnections());
+        }
+
+        return snapshot;
+    }
+
+    void requestQueued(String requestId) {
+        queuedRequests.add(requestId);
+    }
+
+    void requestDequeued(String requestId) {
+        queuedRequests.remove(requestId);
+    }
+
+    void queueCleared() {
+        queuedRequests.clear();
+    }
+
+    void errorOccurred(int errorCode) {
+        Counter counter = errors.get(errorCode);
+        if (counter == null) {
+            Counter newCounter = new Counter();
+            counter = errors.putIfAbsent(errorCode, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+
+        counter.increment();
+    }
+
+    private static void putHistogram(Map<String, Long> snapshot, String name, Histogram histogram) {
+        Histogram.Snapshot histogramSnapshot = histogram.snapshot();
+        snapshot.put(name + ".count", histogramSnapshot.getCount());
+        snapshot.put(name + ".sum", histogramSnapshot.getSum());
+        snapshot.put(name + ".max", histogramSnapshot.getMax());
+        snapshot.put(name + ".p50", histogramSnapshot.getPercentile(50));
+        snapshot.put(name + ".p90", histogramSnapshot.getPercentile(90));
+        snapshot.put(name + ".p99", histogramSnapshot.getPercentile(99));
+    }
+}
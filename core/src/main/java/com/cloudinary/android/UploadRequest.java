@@ -8,6 +8,8 @@ import androidx.work.Data;
 
 import com.cloudinary.android.callback.ErrorInfo;
 import com.cloudinary.android.callback.UploadCallback;
+import com.cloudinary.android.callback.UploadEventListener;
+import com.cloudinary.android.payload.ByteArrayPayload;
 import com.cloudinary.android.payload.FilePayload;
 import com.cloudinary.android.payload.Payload;
 import com.cloudinary.android.payload.PayloadNotFoundException;
@@ -15,7 +17,7 @@ import com.cloudinary.android.policy.TimeWindow;
 import com.cloudinary.android.policy.UploadPolicy;
 import com.cloudinary.android.preprocess.PreprocessChain;
 import com.cloudinary.android.preprocess.PreprocessException;
-import com.cloudinary.utils.ObjectUtils;
+import com.cloudinary.utils.StringUtils;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -25,6 +27,7 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 /**
  * A request to upload a single {@link Payload} to Cloudinary. Note: Once calling {@link #dispatch()} the request is sealed and any
@@ -36,6 +39,10 @@ import java.util.UUID;
 public class UploadRequest<T extends Payload> {
     private static final String TAG = UploadRequest.class.getSimpleName();
 
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_DEFAULT = 0;
+    public static final int PRIORITY_HIGH = 10;
+
     private final UploadContext<T> uploadContext;
     private final Object optionsLockObject = new Object();
     private PreprocessChain preprocessChain;
@@ -44,10 +51,12 @@ public class UploadRequest<T extends Payload> {
     private UploadPolicy uploadPolicy = MediaManager.get().getGlobalUploadPolicy();
     private TimeWindow timeWindow = TimeWindow.getDefault();
     private UploadCallback callback;
+    private Executor callbackExecutor;
     private Map<String, Object> options;
     private String optionsAsString = null;
     private Long maxFileSize;
     private boolean startNow = false;
+    private int priority = PRIORITY_DEFAULT;
 
     public UploadRequest(UploadContext<T> uploadContext) {
         this.uploadContext = uploadContext;
@@ -59,12 +68,11 @@ public class UploadRequest<T extends Payload> {
     }
 
     static String encodeOptions(Map<String, Object> options) throws IOException {
-        return ObjectUtils.serialize(options);
+        return OptionsCodec.encode(options);
     }
 
-    @SuppressWarnings("unchecked")
     static Map<String, Object> decodeOptions(String encoded) throws IOException, ClassNotFoundException {
-        return (Map<String, Object>) ObjectUtils.deserialize(encoded);
+        return OptionsCodec.decode(encoded);
     }
 
 
@@ -74,8 +82,20 @@ public class UploadRequest<T extends Payload> {
      * @return This request for chaining.
      */
     public synchronized UploadRequest<T> callback(UploadCallback callback) {
+        return callback(callback, null);
+    }
+
+    /**
+     * Setup a callback to get notified on upload events, called using the given executor instead of the main thread.
+     *
+     * @param executor The executor to call the callback with, null for the main thread.
+     * @return This request for chaining.
+     * @see MediaManager#registerCallback(UploadCallback, Executor)
+     */
+    public synchronized UploadRequest<T> callback(UploadCallback callback, Executor executor) {
         assertNotDispatched();
         this.callback = new DelegateCallback(callback);
+        this.callbackExecutor = executor;
         return this;
     }
 
@@ -153,6 +173,51 @@ public class UploadRequest<T extends Payload> {
         return this;
     }
 
+    /**
+     * Compute digests of the uploaded content while it's being sent, without reading the payload again.
+     * The hex encoded digests are added to the result map passed to {@link UploadCallback#onSuccess(String, Map)},
+     * under "content_" followed by the algorithm name, e.g. "content_sha256". Digests are computed across all the
+     * chunks of a large upload, including resumed uploads of payloads that can be read by position (files, byte
+     * arrays and most local uris). When a resumed payload cannot be read again the digests are omitted from the result.
+     *
+     * @param algorithms Any of "sha1", "sha256" and "md5" (the latter matches the etag of non chunked uploads).
+     * @return This request for chaining.
+     */
+    public synchronized UploadRequest<T> contentDigest(String... algorithms) {
+        String option = StringUtils.join(algorithms, ",");
+        // fail fast on unsupported algorithms, rather than when the request is processed:
+        ContentDigest.parseOption(option);
+        return option(ContentDigest.OPTION, option);
+    }
+
+    /**
+     * Skip the upload if an identical payload was already uploaded with identical options, and report the result of
+     * the previous upload instead. The reported result only contains the fields identifying and delivering the
+     * resource (e.g. public id, version, format, dimensions and urls), not the analysis of the upload (e.g. colors or
+     * faces). Checking for a previous upload reads the entire payload before uploading it.
+     * Previous uploads can be forgotten using {@link MediaManager#invalidateDeduplicatedUploads(Context, String)}.
+     *
+     * @return This request for chaining.
+     */
+    public synchronized UploadRequest<T> deduplicate() {
+        return option(UploadDedupIndex.OPTION, true);
+    }
+
+    /**
+     * Set the priority of the request among other requests started with {@link #startNow(Context)} that are waiting to
+     * run. Requests with a higher priority run first, however every priority level is only worth a minute of waiting,
+     * so a request that waits long enough runs before newer requests of a higher priority.
+     * Requests dispatched to run in the background are scheduled by the system and ignore the priority.
+     *
+     * @param priority The priority, e.g. {@link #PRIORITY_HIGH} for uploads the user is waiting for.
+     * @return This request for chaining.
+     */
+    public synchronized UploadRequest<T> priority(int priority) {
+        assertNotDispatched();
+        this.priority = priority;
+        return this;
+    }
+
     /**
      * Set the upload uploadPolicy for the request
      *
@@ -198,7 +263,11 @@ public class UploadRequest<T extends Payload> {
         this.dispatched = true;
         serializeOptions();
 
-        MediaManager.get().registerCallback(requestId, callback);
+        MediaManager.get().registerCallback(requestId, callback, callbackExecutor);
+        UploadEventListener events = MediaManager.get().getUploadEventListener();
+        if (events != null) {
+            events.requestDispatched(requestId, System.nanoTime());
+        }
 
         final RequestDispatcher dispatcher = uploadContext.getDispatcher();
         boolean hasPreprocess = preprocessChain != null && !preprocessChain.isEmpty();
@@ -213,8 +282,12 @@ public class UploadRequest<T extends Payload> {
                 @Override
                 public void run() {
                     try {
+                        long preprocessStart = System.currentTimeMillis();
                         final UploadRequest newRequest = preprocessChain != null ?
                                 preprocessAndClone(context) : UploadRequest.this;
+                        if (preprocessChain != null) {
+                            MediaManager.get().getMetrics().getPreprocessDuration().record(System.currentTimeMillis() - preprocessStart);
+                        }
 
                         long length = newRequest.getPayload().getLength(context);
                         if (maxFileSize != null && length > maxFileSize) {
@@ -274,9 +347,11 @@ public class UploadRequest<T extends Payload> {
         uploadRequest.uploadPolicy = uploadPolicy;
         uploadRequest.timeWindow = TimeWindow.getDefault();
         uploadRequest.callback = callback;
+        uploadRequest.callbackExecutor = callbackExecutor;
         uploadRequest.options = options;
         uploadRequest.optionsAsString = optionsAsString;
         uploadRequest.requestId = requestId;
+        uploadRequest.priority = priority;
         uploadRequest.dispatched = dispatched;
 
         return uploadRequest;
@@ -308,6 +383,10 @@ public class UploadRequest<T extends Payload> {
         return uploadContext;
     }
 
+    int getPriority() {
+        return priority;
+    }
+
     TimeWindow getTimeWindow() {
         return timeWindow;
     }
@@ -331,9 +410,15 @@ public class UploadRequest<T extends Payload> {
     }
 
     void populateParamsFromFields(RequestParams target) {
-        target.putString("uri", getPayload().toUri());
+        // the params stay in this process, a byte array doesn't need to be copied
+        Payload payload = getPayload();
+        target.putString("uri", payload instanceof ByteArrayPayload ? ((ByteArrayPayload) payload).toHandleUri(getRequestId()) : payload.toUri());
         target.putString("requestId", getRequestId());
         target.putInt("maxErrorRetries", getUploadPolicy().getMaxErrorRetries());
+        target.putInt("parallelChunkUploads", getUploadPolicy().getParallelChunkUploads());
+        target.putInt("minChunkSize", getUploadPolicy().getMinChunkSize());
+        target.putInt("maxChunkSize", getUploadPolicy().getMaxChunkSize());
+        target.putLong("maxBytesPerSecond", getUploadPolicy().getMaxBytesPerSecond());
         target.putString("options", getOptionsString());
     }
 
@@ -344,8 +429,7 @@ public class UploadRequest<T extends Payload> {
          * Store Payload data on temporary file in preparation for [{@link com.cloudinary.android.AndroidJobStrategy.UploadJob}].
          */
         try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(payloadFile))) {
-            PayloadData data = new PayloadData(getPayload().toUri(), getRequestId(), getUploadPolicy().getMaxErrorRetries(), getOptionsString());
-            oos.writeObject(data);
+            oos.writeObject(toPayloadData(getPayload().toUri()));
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -355,6 +439,30 @@ public class UploadRequest<T extends Payload> {
         return dataBuilder.build();
     }
 
+    /**
+     * Same as {@link #buildPayload(File)}, but the request is added to the request journal instead of a payload file,
+     * and a byte array payload is written to a file of its own instead of being encoded in the uri.
+     */
+    public Data buildPayload(Context context) {
+        Payload payload = getPayload();
+        String uri = null;
+        if (payload instanceof ByteArrayPayload) {
+            try {
+                uri = ((ByteArrayPayload) payload).toBlobUri(context, getRequestId());
+            } catch (IOException e) {
+                Logger.e(TAG, String.format("Could not save the payload of request %s, encoding it instead.", getRequestId()), e);
+            }
+        }
+
+        RequestJournal.get(context).add(toPayloadData(uri != null ? uri : payload.toUri()));
+        return new Data.Builder().putString(PayloadData.JOURNAL_KEY, getRequestId()).build();
+    }
+
+    private PayloadData toPayloadData(String uri) {
+        return new PayloadData(uri, getRequestId(), getUploadPolicy().getMaxErrorRetries(), getUploadPolicy().getParallelChunkUploads(),
+                getUploadPolicy().getMinChunkSize(), getUploadPolicy().getMaxChunkSize(), getUploadPolicy().getMaxBytesPerSecond(), getOptionsString());
+    }
+
     /**
      * Wraps the delegate and unregisters the callback once a request is finished.
      */
@@ -394,22 +502,38 @@ public class UploadRequest<T extends Payload> {
     }
 
     public static class PayloadData implements Serializable {
+        // Pinned to the value computed for the original class, so payload files written by
+        // previous versions can still be read after adding fields.
+        private static final long serialVersionUID = -5124199440288869089L;
 
         public transient final static String KEY = "payload_file_path";
+        public transient final static String JOURNAL_KEY = "journal_request_id";
 
         private final String uri;
         private final String requestId;
         private final int maxErrorRetries;
         private final String options;
+        private final int parallelChunkUploads;
+        private final int minChunkSize;
+        private final int maxChunkSize;
+        private final long maxBytesPerSecond;
 
         public PayloadData() {
             this(null, null, 1, null);
         }
 
         public PayloadData(String uri, String requestId, int maxErrorRetries, String options) {
+            this(uri, requestId, maxErrorRetries, 1, 0, 0, 0, options);
+        }
+
+        public PayloadData(String uri, String requestId, int maxErrorRetries, int parallelChunkUploads, int minChunkSize, int maxChunkSize, long maxBytesPerSecond, String options) {
             this.uri = uri;
             this.requestId = requestId;
             this.maxErrorRetries = maxErrorRetries;
+            this.parallelChunkUploads = parallelChunkUploads;
+            this.minChunkSize = minChunkSize;
+            this.maxChunkSize = maxChunkSize;
+            this.maxBytesPerSecond = maxBytesPerSecond;
             this.options = options;
         }
 
@@ -429,5 +553,22 @@ public class UploadRequest<T extends Payload> {
             return options;
         }
 
+        public int getParallelChunkUploads() {
+            // files written by previous versions don't contain this field
+            return Math.max(1, parallelChunkUploads);
+        }
+
+        public int getMinChunkSize() {
+            return minChunkSize;
+        }
+
+        public int getMaxChunkSize() {
+            return maxChunkSize;
+        }
+
+        public long getMaxBytesPerSecond() {
+            return maxBytesPerSecond;
+        }
+
     }
 }
@@ -1,26 +1,57 @@
 package com.cloudinary.android;
 
 import com.cloudinary.ProgressCallback;
+import com.cloudinary.android.callback.UploadEventListener;
+import com.cloudinary.android.transport.HttpTransport;
+import com.cloudinary.android.transport.KeepAliveHttpTransport;
 import com.cloudinary.strategies.AbstractUploaderStrategy;
 import com.cloudinary.utils.ObjectUtils;
 import com.cloudinary.utils.StringUtils;
 
 import org.cloudinary.json.JSONException;
-import org.cloudinary.json.JSONObject;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static com.cloudinary.android.MultipartUtility.MultipartCallback;
 
 public class UploaderStrategy extends AbstractUploaderStrategy {
+    private static final String CHARSET = "UTF-8";
+    /**
+     * Runtime-only option holding the {@link BandwidthLimiter} pacing the request body, not sent to the server.
+     */
+    static final String BANDWIDTH_LIMITER_OPTION = "bandwidth_limiter";
+    /**
+     * Runtime-only option holding the {@link ContentDigest} of the uploaded payload, not sent to the server.
+     */
+    static final String CONTENT_DIGEST_INSTANCE_OPTION = "content_digest_instance";
+    /**
+     * Runtime-only options holding the {@link UploadEventListener} notified of the request phases and the id of the
+     * request, not sent to the server. Only set when a listener is installed.
+     */
+    static final String EVENT_LISTENER_OPTION = "event_listener";
+    static final String REQUEST_ID_OPTION = "request_id";
+    /**
+     * Runtime-only option holding the {@link UploadMetrics} updated with the chunks of the request, not sent to the server.
+     */
+    static final String METRICS_OPTION = "metrics";
+    private static volatile HttpTransport httpTransport = new KeepAliveHttpTransport();
+
+    static HttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+
+    static void setHttpTransport(HttpTransport transport) {
+        httpTransport = transport;
+    }
 
     protected static String readFully(InputStream in) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -39,6 +70,59 @@ public class UploaderStrategy extends AbstractUploaderStrategy {
         if (options == null) {
             options = ObjectUtils.emptyMap();
         }
+
+        UploadEventListener events = options.get(EVENT_LISTENER_OPTION) instanceof UploadEventListener ?
+                (UploadEventListener) options.get(EVENT_LISTENER_OPTION) : null;
+        UploadMetrics metrics = options.get(METRICS_OPTION) instanceof UploadMetrics ? (UploadMetrics) options.get(METRICS_OPTION) : null;
+        if (events == null && metrics == null) {
+            return callApi(action, params, options, file, progressCallback, null, null);
+        }
+
+        String requestId = ObjectUtils.asString(options.get(REQUEST_ID_OPTION));
+        long offset = contentRangeStart((Map<String, String>) options.get("extra_headers"));
+        long length = determineLength(file);
+        long start = System.nanoTime();
+        if (events != null) {
+            events.chunkStart(requestId, start, offset, length);
+        }
+        if (metrics != null && length > 0) {
+            metrics.getInFlightBytes().add(length);
+        }
+
+        try {
+            Map result = callApi(action, params, options, file, progressCallback, events, requestId);
+            long end = System.nanoTime();
+            if (metrics != null) {
+                metrics.getChunkLatency().record((end - start) / 1_000_000);
+                if (length > 0) {
+                    metrics.getUploadedBytes().add(length);
+                }
+            }
+            if (events != null) {
+                events.chunkEnd(requestId, end, offset, length);
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            if (metrics != null) {
+                metrics.getFailedChunks().increment();
+            }
+            if (events != null) {
+                events.chunkFailed(requestId, System.nanoTime(), offset, length, e);
+            }
+            throw e;
+        } finally {
+            if (metrics != null && length > 0) {
+                metrics.getInFlightBytes().add(-length);
+            }
+        }
+    }
+
+    /**
+     * @param events    Notified of the phases of the call, null if no listener is installed.
+     * @param requestId The id of the request for the events.
+     */
+    private Map callApi(String action, Map<String, Object> params, Map options, Object file, final ProgressCallback progressCallback,
+                        UploadEventListener events, String requestId) throws IOException {
         boolean returnError = ObjectUtils.asBoolean(options.get("return_error"), false);
 
         if (requiresSigning(action, options)) {
@@ -75,21 +159,23 @@ public class UploaderStrategy extends AbstractUploaderStrategy {
 
         MultipartUtility multipart = null;
         HttpURLConnection connection = null;
+        HttpTransport transport = httpTransport;
 
         try {
             int connectTimeout = options.get("connect_timeout") != null ? (int) options.get("connect_timeout") : 0;
             int readTimeout = options.get("read_timeout") != null ? (int) options.get("read_timeout") : 0;
-            multipart = new MultipartUtility(apiUrl, "UTF-8", this.cloudinary().randomPublicId(), (Map<String, String>) options.get("extra_headers"), multipartCallback, connectTimeout, readTimeout);
+            String boundary = this.cloudinary().randomPublicId();
 
             // Remove blank parameters
+            List<String[]> formFields = new ArrayList<>();
             for (Map.Entry<String, Object> param : params.entrySet()) {
                 if (param.getValue() instanceof Collection) {
                     for (Object value : (Collection) param.getValue()) {
-                        multipart.addFormField(param.getKey() + "[]", ObjectUtils.asString(value));
+                        formFields.add(new String[]{param.getKey() + "[]", ObjectUtils.asString(value)});
                     }
                 } else {
                     if (StringUtils.isNotBlank(param.getValue())) {
-                        multipart.addFormField(param.getKey(), param.getValue().toString());
+                        formFields.add(new String[]{param.getKey(), param.getValue().toString()});
                     }
                 }
             }
@@ -98,59 +184,164 @@ public class UploaderStrategy extends AbstractUploaderStrategy {
                 file = new File((String) file);
             }
             String filename = (String) options.get("filename");
+            if (file instanceof String) {
+                formFields.add(new String[]{"file", (String) file});
+            }
+
+            long contentLength = determineContentLength(boundary, formFields, file, filename);
+            if (events != null) {
+                events.connectStart(requestId, System.nanoTime());
+            }
+            multipart = new MultipartUtility(apiUrl, CHARSET, boundary, (Map<String, String>) options.get("extra_headers"), multipartCallback, connectTimeout, readTimeout, contentLength, transport);
+            if (events != null) {
+                events.connectEnd(requestId, System.nanoTime());
+                events.requestBodyStart(requestId, System.nanoTime());
+            }
+            if (options.get(BANDWIDTH_LIMITER_OPTION) instanceof BandwidthLimiter) {
+                multipart.setBandwidthLimiter((BandwidthLimiter) options.get(BANDWIDTH_LIMITER_OPTION));
+            }
+            if (options.get(CONTENT_DIGEST_INSTANCE_OPTION) instanceof ContentDigest) {
+                multipart.setContentDigest((ContentDigest) options.get(CONTENT_DIGEST_INSTANCE_OPTION),
+                        contentRangeStart((Map<String, String>) options.get("extra_headers")));
+            }
+
+            for (String[] formField : formFields) {
+                multipart.addFormField(formField[0], formField[1]);
+            }
+
             if (file instanceof File) {
                 multipart.addFilePart("file", (File) file, filename);
-            } else if (file instanceof String) {
-                multipart.addFormField("file", (String) file);
+            } else if (file instanceof SourceRange) {
+                SourceRange range = (SourceRange) file;
+                multipart.addFilePart("file", range.getSource(), range.getPosition(), range.getLength(), filename);
             } else if (file instanceof InputStream) {
                 multipart.addFilePart("file", (InputStream) file, filename);
             } else if (file instanceof byte[]) {
-                multipart.addFilePart("file", new ByteArrayInputStream((byte[]) file), filename);
+                multipart.addFilePart("file", (byte[]) file, filename);
             }
 
             connection = multipart.execute();
+            if (events != null) {
+                events.requestBodyEnd(requestId, System.nanoTime());
+            }
         } catch(InterruptedIOException e ) {
             e.printStackTrace();
         } finally {
             if (multipart != null){
                 // Closing more than once has no effect so we can call it safely without having to check state
                 multipart.close();
+                if (connection == null) {
+                    // the request body was not sent entirely, the connection is in an unknown state
+                    transport.releaseConnection(multipart.getConnection(), false);
+                }
             }
         }
 
         int code;
+        Map<String, Object> result;
+        boolean reusable = false;
         try {
-            code = connection.getResponseCode();
-        } catch (IOException e) {
-            if (e.getMessage().equals("No authentication challenges found")) {
-                // Android trying to be clever...
-                code = 401;
+            if (events != null) {
+                events.responseHeadersStart(requestId, System.nanoTime());
+            }
+            try {
+                code = connection.getResponseCode();
+            } catch (IOException e) {
+                if (e.getMessage().equals("No authentication challenges found")) {
+                    // Android trying to be clever...
+                    code = 401;
+                } else {
+                    throw e;
+                }
+            }
+            if (events != null) {
+                events.responseHeadersEnd(requestId, System.nanoTime(), code);
+            }
+            InputStream responseStream = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            try {
+                if (code != 200 && code != 400 && code != 404 && code != 500) {
+                    String responseData = readFully(responseStream);
+                    reusable = true;
+                    throw new RuntimeException("Server returned unexpected status code - " + code + " - " + responseData);
+                }
+
+                // decode straight from the stream, responses with eager transformations, colors, breakpoints etc. can be large
+                if (events != null) {
+                    events.responseBodyStart(requestId, System.nanoTime());
+                }
+                try {
+                    result = JsonResponseParser.parse(responseStream);
+                } catch (JSONException e) {
+                    if (e.getCause() instanceof IOException) {
+                        // the tokener wraps read errors, those are network errors and not malformed responses
+                        throw (IOException) e.getCause();
+                    }
+                    throw new RuntimeException("Invalid JSON response from server " + e.getMessage());
+                }
+                if (events != null) {
+                    events.responseBodyEnd(requestId, System.nanoTime());
+                }
+                // the response was fully consumed, the connection can be kept alive for the next request:
+                reusable = true;
+            } finally {
+                responseStream.close();
+            }
+        } finally {
+            if (connection != null) {
+                transport.releaseConnection(connection, reusable);
+            }
+        }
+
+        Object error = result.get("error");
+        if (error instanceof Map) {
+            if (returnError) {
+                ((Map<String, Object>) error).put("http_code", code);
             } else {
-                throw e;
+                throw new RuntimeException(ObjectUtils.asString(((Map) error).get("message")));
             }
         }
-        InputStream responseStream = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
-        String responseData = readFully(responseStream);
-        connection.disconnect();
 
-        if (code != 200 && code != 400 && code != 404 && code != 500) {
-            throw new RuntimeException("Server returned unexpected status code - " + code + " - " + responseData);
+        return result;
+    }
+
+    /**
+     * Calculates the exact length of the multipart body so the request can be sent in fixed length streaming mode.
+     *
+     * @return The body length in bytes, or -1 if the length of the file part cannot be known in advance.
+     */
+    private long determineContentLength(String boundary, List<String[]> formFields, Object file, String filename) throws IOException {
+        long length = 0;
+        for (String[] formField : formFields) {
+            length += MultipartUtility.formFieldLength(boundary, CHARSET, formField[0], formField[1]);
+        }
+
+        if (file instanceof File) {
+            String fileName = filename != null ? filename : ((File) file).getName();
+            length += MultipartUtility.filePartLength(boundary, CHARSET, "file", fileName, determineLength(file));
+        } else if (file instanceof byte[] || file instanceof SourceRange) {
+            length += MultipartUtility.filePartLength(boundary, CHARSET, "file", filename, determineLength(file));
+        } else if (file instanceof InputStream) {
+            // stream length is unknown, fall back to chunked streaming mode
+            return -1;
+        }
+
+        return length + MultipartUtility.closingLength(boundary, CHARSET);
+    }
+
+    /**
+     * @return The position of the request's content in the entire payload, parsed from a "bytes start-end/total"
+     * Content-Range header, or 0 if the payload is not sent in chunks.
+     */
+    private static long contentRangeStart(Map<String, String> headers) {
+        String range = headers != null ? headers.get("Content-Range") : null;
+        if (range == null || !range.startsWith("bytes ") || range.indexOf('-') < 0) {
+            return 0;
         }
 
-        JSONObject result;
         try {
-            result = new JSONObject(responseData);
-            if (result.has("error")) {
-                JSONObject error = result.getJSONObject("error");
-                if (returnError) {
-                    error.put("http_code", code);
-                } else {
-                    throw new RuntimeException(error.getString("message"));
-                }
-            }
-            return ObjectUtils.toMap(result);
-        } catch (JSONException e) {
-            throw new RuntimeException("Invalid JSON response from server " + e.getMessage());
+            return Long.parseLong(range.substring("bytes ".length(), range.indexOf('-')).trim());
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 
@@ -162,6 +353,8 @@ public class UploaderStrategy extends AbstractUploaderStrategy {
                 actualLength = ((File) file).length();
             } else if (file instanceof byte[]) {
                 actualLength = ((byte[]) file).length;
+            } else if (file instanceof SourceRange) {
+                actualLength = ((SourceRange) file).getLength();
             } else if (!(file instanceof InputStream)) {
                 File f = new File(file.toString());
                 actualLength = f.length();
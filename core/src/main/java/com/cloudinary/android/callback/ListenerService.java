@@ -3,6 +3,7 @@ package com.cloudinary.android.callback;
 import android.app.Service;
 import android.content.Intent;
 
+import com.cloudinary.android.Logger;
 import com.cloudinary.android.MediaManager;
 import com.cloudinary.utils.StringUtils;
 
@@ -40,7 +41,9 @@ public abstract class ListenerService extends Service implements UploadCallback{
                     UploadResult uploadResult = MediaManager.get().popPendingResult(requestId);
 
                     // ACTION_REQUEST_FINISHED means either success or failure:
-                    if (result == UploadStatus.FAILURE) {
+                    if (uploadResult == null) {
+                        Logger.e(TAG, String.format("The result of request %s is no longer available.", requestId));
+                    } else if (result == UploadStatus.FAILURE) {
                         onError(requestId, uploadResult.getError());
                     } else if (result == UploadStatus.SUCCESS) {
                         onSuccess(requestId, uploadResult.getSuccessResultData());
@@ -0,0 +1,102 @@
+package com.cloudinary.android.callback;
+
+/**
+ * Listener for the phases of upload requests, for measuring where the time of an upload goes.
+ * All the methods do nothing by default, override the ones of interest.
+ * <p>
+ * Timestamps are taken from {@link System#nanoTime()}, so they are only meaningful relative to each other.
+ * Events are called synchronously on the thread running the phase, implementations should return quickly.
+ * Events of chunks uploaded in parallel may interleave.
+ * <p>
+ * The phases of a request are:
+ * <ol>
+ * <li>{@link #requestDispatched} - the request was handed to the dispatcher, it may run much later.</li>
+ * <li>{@link #requestStart} - the request starts running, once per attempt.</li>
+ * <li>{@link #optionsDecodeStart}/{@link #optionsDecodeEnd} - decoding the persisted upload options.</li>
+ * <li>{@link #payloadPrepareStart}/{@link #payloadPrepareEnd} - opening the payload and determining its size.</li>
+ * <li>{@link #signatureStart}/{@link #signatureEnd} - retrieving a signature from the signature provider, if used.</li>
+ * <li>For each chunk: {@link #chunkStart}, {@link #connectStart}/{@link #connectEnd},
+ * {@link #requestBodyStart}/{@link #requestBodyEnd}, {@link #responseHeadersStart}/{@link #responseHeadersEnd}
+ * (the time the server took to process the chunk), {@link #responseBodyStart}/{@link #responseBodyEnd} and then
+ * {@link #chunkEnd} or {@link #chunkFailed}.</li>
+ * <li>{@link #requestEnd} - the attempt finished.</li>
+ * </ol>
+ */
+public abstract class UploadEventListener {
+
+    public void requestDispatched(String requestId, long timestampNanos) {
+    }
+
+    public void requestStart(String requestId, long timestampNanos) {
+    }
+
+    public void optionsDecodeStart(String requestId, long timestampNanos) {
+    }
+
+    public void optionsDecodeEnd(String requestId, long timestampNanos) {
+    }
+
+    public void payloadPrepareStart(String requestId, long timestampNanos) {
+    }
+
+    /**
+     * @param totalBytes The size of the payload.
+     */
+    public void payloadPrepareEnd(String requestId, long timestampNanos, long totalBytes) {
+    }
+
+    public void signatureStart(String requestId, long timestampNanos) {
+    }
+
+    public void signatureEnd(String requestId, long timestampNanos) {
+    }
+
+    /**
+     * @param offset The position of the chunk in the payload.
+     * @param length The size of the chunk.
+     */
+    public void chunkStart(String requestId, long timestampNanos, long offset, long length) {
+    }
+
+    /**
+     * Opening the connection, this is short when a kept-alive connection is reused.
+     */
+    public void connectStart(String requestId, long timestampNanos) {
+    }
+
+    public void connectEnd(String requestId, long timestampNanos) {
+    }
+
+    public void requestBodyStart(String requestId, long timestampNanos) {
+    }
+
+    public void requestBodyEnd(String requestId, long timestampNanos) {
+    }
+
+    public void responseHeadersStart(String requestId, long timestampNanos) {
+    }
+
+    /**
+     * @param code The http status code of the response.
+     */
+    public void responseHeadersEnd(String requestId, long timestampNanos, int code) {
+    }
+
+    public void responseBodyStart(String requestId, long timestampNanos) {
+    }
+
+    public void responseBodyEnd(String requestId, long timestampNanos) {
+    }
+
+    public void chunkEnd(String requestId, long timestampNanos, long offset, long length) {
+    }
+
+    public void chunkFailed(String requestId, long timestampNanos, long offset, long length, Exception error) {
+    }
+
+    /**
+     * @param status The result of the attempt.
+     */
+    public void requestEnd(String requestId, long timestampNanos, UploadStatus status) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.cloudinary.android.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free counter for values updated from many threads. Updates are spread over several cells, chosen by the
+ * updating thread, so concurrent updates rarely contend on the same memory; reads sum up all the cells.
+ * The counter can be decremented as well, to track levels such as in-flight requests.
+ */
+public final class Counter {
+    // cells are spaced a cache line apart (8 longs) so cells of different threads don't share a line
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        add(-1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(cellIndex(), delta);
+    }
+
+    /**
+     * @return The current value. Updates made concurrently with this call may or may not be included.
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+
+        return sum;
+    }
+
+    private static int cellIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash >>> 16) & (STRIPES - 1)) * PADDING;
+    }
+
+    private static int stripes() {
+        // a power of two at least twice the number of cores, so the index is a mask
+        int target = Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+        int stripes = 1;
+        while (stripes < target) {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+}
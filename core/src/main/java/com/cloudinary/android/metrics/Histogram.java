@@ -0,0 +1,111 @@
+package com.cloudinary.android.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non negative values, counted in exponential buckets: bucket {@code i} holds values up to
+ * {@code 2^i}, so percentiles are accurate to within a factor of two, which is enough to spot latency and throughput
+ * shifts while keeping recording to a couple of atomic increments.
+ */
+public final class Histogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final Counter count = new Counter();
+    private final Counter sum = new Counter();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value The value to record, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.getAndIncrement(bucketOf(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // retry, another thread raised the max concurrently
+        }
+    }
+
+    /**
+     * @return A point in time copy of the histogram. Values recorded concurrently with this call may be partially
+     * included (e.g. in the count but not yet in the buckets).
+     */
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketCounts[i] = counts.get(i);
+        }
+
+        return new Snapshot(bucketCounts, count.get(), sum.get(), max.get());
+    }
+
+    static int bucketOf(long value) {
+        // the smallest i such that value <= 2^i
+        return value <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(value - 1);
+    }
+
+    public static final class Snapshot {
+        private final long[] bucketCounts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] bucketCounts, long count, long sum, long max) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile The percentile, between 0 and 100.
+         * @return An upper bound of the given percentile of the recorded values (the upper bound of its bucket,
+         * capped at the max), or 0 if nothing was recorded.
+         */
+        public long getPercentile(double percentile) {
+            long total = 0;
+            for (long bucketCount : bucketCounts) {
+                total += bucketCount;
+            }
+
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen > 0 && seen >= rank) {
+                    return Math.min(max, i == 63 ? Long.MAX_VALUE : 1L << i);
+                }
+            }
+
+            return 0;
+        }
+
+        /**
+         * @return The count of values in each bucket, bucket {@code i} holds values up to {@code 2^i}.
+         */
+        public long[] getBucketCounts() {
+            return bucketCounts.clone();
+        }
+    }
+}
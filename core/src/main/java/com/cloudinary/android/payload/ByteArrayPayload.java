@@ -6,17 +6,37 @@ import android.util.Base64;
 
 import com.cloudinary.android.Logger;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * This class is used to handle uploading of images/videos as byte arrays
+ * This class is used to handle uploading of images/videos as byte arrays.
+ * {@link #toUri()} encodes the entire array in the uri. To avoid copying large arrays, requests reference the array
+ * by request id instead: immediate requests through an in-memory handle table ({@link #toHandleUri(String)}) and
+ * background requests through a file written once to the app's storage ({@link #toBlobUri(Context, String)}). Both
+ * are released using {@link #release(Context, String)} once the request is done.
  */
 public class ByteArrayPayload extends Payload<byte[]> {
 
     public static final String ENCODING_CHARSET = "UTF8";
     static final String URI_KEY = "bytes";
+    static final String HANDLE_URI_KEY = "bytes-handle";
+    static final String BLOB_URI_KEY = "bytes-blob";
     private static final String TAG = ByteArrayPayload.class.getSimpleName();
+    private static final String BLOB_DIRECTORY = "cloudinary_payloads";
+    private static final Map<String, byte[]> handles = new ConcurrentHashMap<>();
+
+    // set when the data is in a blob file that was not read yet
+    private String blobId;
 
     public ByteArrayPayload(byte[] data) {
         super(data);
@@ -48,18 +68,120 @@ public class ByteArrayPayload extends Payload<byte[]> {
         }
     }
 
+    private static File getBlobDirectory(Context context) {
+        return new File(context.getNoBackupFilesDir(), BLOB_DIRECTORY);
+    }
+
+    private static File getBlobFile(Context context, String requestId) {
+        return new File(getBlobDirectory(context), requestId);
+    }
+
     @Override
     public String toUri() {
         return URI_KEY + "://" + encode(data);
     }
 
+    /**
+     * Constructs a uri referencing the data in memory, valid in this process until the request is released.
+     *
+     * @param requestId The id of the request uploading this payload.
+     * @return The string representation of the uri.
+     */
+    public String toHandleUri(String requestId) {
+        handles.put(requestId, data);
+        return HANDLE_URI_KEY + "://" + requestId;
+    }
+
+    /**
+     * Writes the data to a file and constructs a uri referencing it, valid until the request is released.
+     *
+     * @param context   Android context.
+     * @param requestId The id of the request uploading this payload.
+     * @return The string representation of the uri.
+     * @throws IOException If the data could not be written.
+     */
+    public String toBlobUri(Context context, String requestId) throws IOException {
+        File blobFile = getBlobFile(context, requestId);
+        if (!blobFile.exists() || blobFile.length() != data.length) {
+            File directory = blobFile.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create the directory " + directory);
+            }
+
+            try (OutputStream out = new FileOutputStream(blobFile)) {
+                out.write(data);
+            }
+        }
+
+        return BLOB_URI_KEY + "://" + requestId;
+    }
+
+    /**
+     * Releases the data referenced by the request, if any, see {@link #toHandleUri(String)} and
+     * {@link #toBlobUri(Context, String)}.
+     *
+     * @param context   Android context, or null to only release the data in memory.
+     * @param requestId The id of the request.
+     */
+    public static void release(Context context, String requestId) {
+        handles.remove(requestId);
+        if (context != null) {
+            File blobFile = getBlobFile(context, requestId);
+            if (blobFile.exists() && !blobFile.delete()) {
+                Logger.e(TAG, String.format("Could not delete the payload of request %s.", requestId));
+            }
+        }
+    }
+
+    /**
+     * Deletes the files written by {@link #toBlobUri(Context, String)} for requests other than the given ones, e.g.
+     * of requests that were cancelled before they ran.
+     *
+     * @param context              Android context.
+     * @param requestIds           The ids of the requests whose files are kept.
+     * @param modifiedBeforeMillis Only files last modified before this time are deleted.
+     * @return The number of deleted files.
+     */
+    public static int deleteBlobsExcept(Context context, Collection<String> requestIds, long modifiedBeforeMillis) {
+        File[] files = getBlobDirectory(context).listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        int deleted = 0;
+        for (File file : files) {
+            if (!requestIds.contains(file.getName()) && file.lastModified() < modifiedBeforeMillis && file.delete()) {
+                deleted++;
+            }
+        }
+
+        return deleted;
+    }
+
     @Override
-    public long getLength(Context context) {
+    public long getLength(Context context) throws PayloadNotFoundException {
+        if (blobId != null) {
+            return getBlob(context).length();
+        }
+
         return data.length;
     }
 
+    /**
+     * {@inheritDoc}
+     * A payload stored in a file is returned as a stream, to avoid reading it all to memory.
+     */
     @Override
-    public Object prepare(Context context) throws EmptyByteArrayException {
+    public Object prepare(Context context) throws PayloadNotFoundException {
+        if (blobId != null) {
+            File blobFile = getBlob(context);
+            try {
+                return new FileInputStream(blobFile);
+            } catch (java.io.FileNotFoundException e) {
+                throw new FileNotFoundException(String.format("Payload of request %s could not be opened", blobId));
+            }
+        }
+
         if (data == null || data.length < 1) {
             throw new EmptyByteArrayException();
         }
@@ -67,22 +189,67 @@ public class ByteArrayPayload extends Payload<byte[]> {
         return data;
     }
 
+    @Override
+    public PositionalSource openPositionalSource(Context context) throws PayloadNotFoundException {
+        if (blobId != null) {
+            File blobFile = getBlob(context);
+            try {
+                RandomAccessFile randomAccessFile = new RandomAccessFile(blobFile, "r");
+                return new FileChannelSource(randomAccessFile.getChannel(), 0, blobFile.length(), randomAccessFile);
+            } catch (java.io.FileNotFoundException e) {
+                throw new FileNotFoundException(String.format("Payload of request %s could not be opened", blobId));
+            }
+        }
+
+        return new ByteArraySource((byte[]) prepare(context));
+    }
+
+    private File getBlob(Context context) throws PayloadNotFoundException {
+        File blobFile = getBlobFile(context, blobId);
+        if (!blobFile.exists()) {
+            throw new FileNotFoundException(String.format("Payload of request %s does not exist", blobId));
+        }
+
+        if (blobFile.length() < 1) {
+            throw new EmptyByteArrayException();
+        }
+
+        return blobFile;
+    }
+
     void loadData(String encodedData) {
         data = decode(encodedData);
     }
 
+    void loadHandle(String requestId) {
+        // a missing handle (e.g. after the process restarted) leaves the payload empty
+        data = handles.get(requestId);
+    }
+
+    void loadBlob(String requestId) {
+        blobId = requestId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
-        Payload<?> payload = (Payload<?>) o;
+        ByteArrayPayload payload = (ByteArrayPayload) o;
+
+        if (blobId != null || payload.blobId != null) {
+            return blobId != null && blobId.equals(payload.blobId);
+        }
 
-        return data != null ? Arrays.equals(data, (byte[]) payload.data) : payload.data == null;
+        return data != null ? Arrays.equals(data, payload.data) : payload.data == null;
     }
 
     @Override
     public int hashCode() {
+        if (blobId != null) {
+            return blobId.hashCode();
+        }
+
         return data != null ? Arrays.hashCode(data) : 0;
     }
 }
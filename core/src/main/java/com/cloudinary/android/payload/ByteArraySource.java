@@ -0,0 +1,32 @@
+package com.cloudinary.android.payload;
+
+/**
+ * {@link PositionalSource} reading directly from a byte array.
+ */
+final class ByteArraySource implements PositionalSource {
+    private final byte[] data;
+
+    ByteArraySource(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public long length() {
+        return data.length;
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) {
+        if (position >= data.length) {
+            return -1;
+        }
+
+        int count = (int) Math.min(length, data.length - position);
+        System.arraycopy(data, (int) position, buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public void close() {
+    }
+}
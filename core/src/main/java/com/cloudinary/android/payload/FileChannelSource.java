@@ -0,0 +1,82 @@
+package com.cloudinary.android.payload;
+
+import android.content.res.AssetFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link PositionalSource} reading a range of a {@link FileChannel} using positional reads, which are safe to use
+ * concurrently and do not change the channel position.
+ */
+final class FileChannelSource implements PositionalSource {
+    private final FileChannel channel;
+    private final long startOffset;
+    private final long length;
+    private final Closeable owner;
+
+    /**
+     * @param channel     The channel to read from.
+     * @param startOffset The position in the channel where the payload starts.
+     * @param length      The length of the payload in bytes.
+     * @param owner       The resource owning the channel, closed when this source is closed.
+     */
+    FileChannelSource(FileChannel channel, long startOffset, long length, Closeable owner) {
+        this.channel = channel;
+        this.startOffset = startOffset;
+        this.length = length;
+        this.owner = owner;
+    }
+
+    /**
+     * Creates a source over the range described by the descriptor. The descriptor is owned by the returned source,
+     * or closed right away if null is returned.
+     * @return The source, or null if the descriptor is not backed by a regular file (e.g. a pipe) and cannot be read by position.
+     */
+    static PositionalSource fromAssetFileDescriptor(AssetFileDescriptor assetFileDescriptor) throws IOException {
+        FileInputStream inputStream = assetFileDescriptor.createInputStream();
+        try {
+            if (!OsConstants.S_ISREG(Os.fstat(inputStream.getFD()).st_mode)) {
+                inputStream.close();
+                return null;
+            }
+        } catch (ErrnoException e) {
+            inputStream.close();
+            throw new IOException(e);
+        }
+
+        FileChannel channel = inputStream.getChannel();
+        long startOffset = assetFileDescriptor.getStartOffset();
+        long length = assetFileDescriptor.getLength() != AssetFileDescriptor.UNKNOWN_LENGTH ?
+                assetFileDescriptor.getLength() : channel.size() - startOffset;
+
+        // closing the stream closes the descriptor as well
+        return new FileChannelSource(channel, startOffset, length, inputStream);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (position >= this.length) {
+            return -1;
+        }
+
+        int count = (int) Math.min(length, this.length - position);
+        return channel.read(ByteBuffer.wrap(buffer, offset, count), startOffset + position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        owner.close();
+    }
+}
@@ -5,6 +5,7 @@ import android.content.Context;
 import com.cloudinary.utils.Base64Coder;
 
 import java.io.File;
+import java.io.RandomAccessFile;
 
 /**
  * This class is used to handle uploading of images/videos represented as a {@link java.io.File}
@@ -29,6 +30,17 @@ public class FilePayload extends Payload<String> {
         return getFile(context);
     }
 
+    @Override
+    public PositionalSource openPositionalSource(Context context) throws PayloadNotFoundException {
+        File file = getFile(context);
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            return new FileChannelSource(randomAccessFile.getChannel(), 0, file.length(), randomAccessFile);
+        } catch (java.io.FileNotFoundException e) {
+            throw new FileNotFoundException(String.format("File '%s' could not be opened", data));
+        }
+    }
+
     private File getFile(Context context) throws FileNotFoundException {
         // check if data is an absolute path or a local app path and check if file exists:
         File file = data.contains(File.separator) ? new File(data) : context.getFileStreamPath(data);
@@ -1,6 +1,7 @@
 package com.cloudinary.android.payload;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.OpenableColumns;
@@ -8,6 +9,7 @@ import android.provider.OpenableColumns;
 import com.cloudinary.utils.Base64Coder;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 public class LocalUriPayload extends Payload<Uri> {
     public static final String[] PROJECTION = {OpenableColumns.SIZE};
@@ -44,6 +46,22 @@ public class LocalUriPayload extends Payload<Uri> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * Only Uris backed by a regular file can be read by position, null is returned for any other content (e.g. streamed content).
+     */
+    @Override
+    public PositionalSource openPositionalSource(Context context) throws PayloadNotFoundException {
+        try {
+            AssetFileDescriptor assetFileDescriptor = context.getContentResolver().openAssetFileDescriptor(data, "r");
+            return assetFileDescriptor != null ? FileChannelSource.fromAssetFileDescriptor(assetFileDescriptor) : null;
+        } catch (FileNotFoundException e) {
+            throw new LocalUriNotFoundException(String.format("Uri %s could not be found", data.toString()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     private long fetchFileSizeFromUri(Context context) {
         Cursor returnCursor = null;
         long size = 0;
@@ -37,6 +37,17 @@ public abstract class Payload<T> {
      */
     public abstract Object prepare(Context context) throws PayloadNotFoundException;
 
+    /**
+     * Opens the payload for reading by position, allowing ranges of it to be uploaded without reading the preceding bytes.
+     * The caller is responsible for closing the returned source.
+     * @param context Android context
+     * @return A {@link PositionalSource} over the payload bytes, or null if this payload can only be read as a stream.
+     * @throws PayloadNotFoundException If the request file or resource does not exist.
+     */
+    public PositionalSource openPositionalSource(Context context) throws PayloadNotFoundException {
+        return null;
+    }
+
     /**
      * Initializes the payload data from the uri.
      * @param uri Uri that contains the payload data and type
@@ -27,6 +27,16 @@ public final class PayloadFactory {
 
         Payload payload;
         switch (scheme) {
+            case ByteArrayPayload.HANDLE_URI_KEY: {
+                ByteArrayPayload byteArrayPayload = new ByteArrayPayload();
+                byteArrayPayload.loadHandle(parsed.getHost());
+                return byteArrayPayload;
+            }
+            case ByteArrayPayload.BLOB_URI_KEY: {
+                ByteArrayPayload byteArrayPayload = new ByteArrayPayload();
+                byteArrayPayload.loadBlob(parsed.getHost());
+                return byteArrayPayload;
+            }
             case ByteArrayPayload.URI_KEY:
                 payload = new ByteArrayPayload();
                 break;
@@ -0,0 +1,28 @@
+package com.cloudinary.android.payload;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Random access to the bytes of a {@link Payload}. Reads are done by absolute position and do not affect each other,
+ * so a single source can be used to read several ranges (e.g. upload chunks) concurrently.
+ */
+public interface PositionalSource extends Closeable {
+
+    /**
+     * @return The total length of the source, in bytes.
+     */
+    long length();
+
+    /**
+     * Reads up to {@code length} bytes starting at the given position of the source.
+     *
+     * @param position The position in the source to read from.
+     * @param buffer   The buffer to read the bytes into.
+     * @param offset   The offset in the buffer to start writing at.
+     * @param length   The maximum number of bytes to read.
+     * @return The number of bytes read, or -1 if the position is at or beyond the end of the source.
+     * @throws IOException In case the underlying resource cannot be read.
+     */
+    int read(long position, byte[] buffer, int offset, int length) throws IOException;
+}
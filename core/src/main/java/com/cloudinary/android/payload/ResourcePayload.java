@@ -58,4 +58,25 @@ public class ResourcePayload extends Payload<Integer> {
             throw new ResourceNotFoundException(String.format("Resource id %d not found", data));
         }
     }
+
+    /**
+     * {@inheritDoc}
+     * Only uncompressed raw resources can be read by position, null is returned for compressed ones.
+     */
+    @Override
+    public PositionalSource openPositionalSource(Context context) throws PayloadNotFoundException {
+        AssetFileDescriptor afd;
+        try {
+            afd = context.getResources().openRawResourceFd(data);
+        } catch (Resources.NotFoundException e) {
+            // also thrown for compressed resources, which can't be opened as a file descriptor.
+            return null;
+        }
+
+        try {
+            return FileChannelSource.fromAssetFileDescriptor(afd);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
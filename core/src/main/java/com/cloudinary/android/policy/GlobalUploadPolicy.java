@@ -6,10 +6,14 @@ package com.cloudinary.android.policy;
 public class GlobalUploadPolicy extends UploadPolicy {
     private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 5;
     private final int maxConcurrentRequests;
+    private final long maxTotalBytesPerSecond;
+    private final int minConcurrentRequests;
 
-    private GlobalUploadPolicy(NetworkType networkType, boolean requiresCharging, boolean requiresIdle, int maxErrorRetries, long backoffMillis, BackoffPolicy backoffPolicy, int maxConcurrentRequests) {
-        super(networkType, requiresCharging, requiresIdle, maxErrorRetries, backoffMillis, backoffPolicy);
+    private GlobalUploadPolicy(NetworkType networkType, boolean requiresCharging, boolean requiresIdle, int maxErrorRetries, long backoffMillis, BackoffPolicy backoffPolicy, int parallelChunkUploads, int minChunkSize, int maxChunkSize, long maxBytesPerSecond, int maxConcurrentRequests, long maxTotalBytesPerSecond, int minConcurrentRequests) {
+        super(networkType, requiresCharging, requiresIdle, maxErrorRetries, backoffMillis, backoffPolicy, parallelChunkUploads, minChunkSize, maxChunkSize, maxBytesPerSecond);
         this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxTotalBytesPerSecond = maxTotalBytesPerSecond;
+        this.minConcurrentRequests = minConcurrentRequests;
     }
 
     /**
@@ -23,11 +27,31 @@ public class GlobalUploadPolicy extends UploadPolicy {
         return maxConcurrentRequests;
     }
 
+    /**
+     * Lower bound of the number of simultaneous upload requests when it's auto tuned, 0 if it's not.
+     */
+    public int getMinConcurrentRequests() {
+        return minConcurrentRequests;
+    }
+
+    public boolean isConcurrencyAutotuned() {
+        return minConcurrentRequests > 0;
+    }
+
+    /**
+     * Upload bandwidth cap shared by all the running requests in bytes per second, 0 for unlimited.
+     */
+    public long getMaxTotalBytesPerSecond() {
+        return maxTotalBytesPerSecond;
+    }
+
     /**
      * Builder to construct an instance of {@link GlobalUploadPolicy}.
      */
     public final static class Builder extends UploadPolicy.BaseBuilder<Builder> {
         private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+        private long maxTotalBytesPerSecond = 0;
+        private int minConcurrentRequests = 0;
 
         /**
          * Set maximum simultaneous upload requests.
@@ -37,11 +61,38 @@ public class GlobalUploadPolicy extends UploadPolicy {
             return this;
         }
 
+        /**
+         * Adjust the number of simultaneous upload requests between the given minimum and {@link #maxConcurrentRequests(int)},
+         * based on the type of the network and the observed throughput and errors. This limit applies to requests
+         * started using {@link com.cloudinary.android.UploadRequest#startNow(android.content.Context)} as well.
+         * @param minConcurrentRequests The lower bound, at least 1.
+         */
+        public Builder autotuneConcurrency(int minConcurrentRequests) {
+            if (minConcurrentRequests < 1) {
+                throw new IllegalArgumentException("Min concurrent requests must be at least 1");
+            }
+            this.minConcurrentRequests = minConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Cap the total upload bandwidth of all the running requests, so background uploads don't saturate the uplink.
+         * Requests started using {@link com.cloudinary.android.UploadRequest#startNow(android.content.Context)} bypass this cap.
+         * @param maxTotalBytesPerSecond Maximum total upload rate in bytes per second, 0 for unlimited (the default).
+         */
+        public Builder maxTotalBytesPerSecond(long maxTotalBytesPerSecond) {
+            if (maxTotalBytesPerSecond < 0) {
+                throw new IllegalArgumentException("Max total bytes per second cannot be negative");
+            }
+            this.maxTotalBytesPerSecond = maxTotalBytesPerSecond;
+            return this;
+        }
+
         /**
          * @return An instance of {@link GlobalUploadPolicy} with the requested configuration.
          */
         public GlobalUploadPolicy build() {
-            return new GlobalUploadPolicy(networkPolicy, requiresCharging, requiresIdle, maxRetries, backoffMillis, backoffPolicy, maxConcurrentRequests);
+            return new GlobalUploadPolicy(networkPolicy, requiresCharging, requiresIdle, maxRetries, backoffMillis, backoffPolicy, parallelChunkUploads, minChunkSize, maxChunkSize, maxBytesPerSecond, maxConcurrentRequests, maxTotalBytesPerSecond, minConcurrentRequests);
         }
     }
 }
@@ -7,6 +7,8 @@ public class UploadPolicy {
     private static final int DEFAULT_MAX_ERROR_RETRIES = 5;
     private static final long DEFAULT_BACKOFF_MILLIS = 120_000;
     private static final BackoffPolicy DEFAULT_BACKOFF_POLICY = BackoffPolicy.EXPONENTIAL;
+    private static final int DEFAULT_PARALLEL_CHUNK_UPLOADS = 1;
+    private static final int MIN_CHUNK_SIZE = 5 * 1024 * 1024;
     private static String TAG = "UploadPolicy";
     private final NetworkType networkType;
     private final boolean requiresCharging;
@@ -14,17 +16,32 @@ public class UploadPolicy {
     private final int maxErrorRetries;
     private final long backoffMillis;
     private final BackoffPolicy backoffPolicy;
+    private final int parallelChunkUploads;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long maxBytesPerSecond;
 
     /**
      * Use {@link Builder} to configure and get an instance of {@link UploadPolicy}.
      */
     protected UploadPolicy(NetworkType networkType, boolean requiresCharging, boolean requiresIdle, int maxErrorRetries, long backoffMillis, BackoffPolicy backoffPolicy) {
+        this(networkType, requiresCharging, requiresIdle, maxErrorRetries, backoffMillis, backoffPolicy, DEFAULT_PARALLEL_CHUNK_UPLOADS, 0, 0, 0);
+    }
+
+    /**
+     * Use {@link Builder} to configure and get an instance of {@link UploadPolicy}.
+     */
+    protected UploadPolicy(NetworkType networkType, boolean requiresCharging, boolean requiresIdle, int maxErrorRetries, long backoffMillis, BackoffPolicy backoffPolicy, int parallelChunkUploads, int minChunkSize, int maxChunkSize, long maxBytesPerSecond) {
         this.networkType = networkType;
         this.requiresCharging = requiresCharging;
         this.requiresIdle = requiresIdle;
         this.maxErrorRetries = maxErrorRetries;
         this.backoffMillis = backoffMillis;
         this.backoffPolicy = backoffPolicy;
+        this.parallelChunkUploads = parallelChunkUploads;
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.maxBytesPerSecond = maxBytesPerSecond;
     }
 
     /**
@@ -70,6 +87,34 @@ public class UploadPolicy {
         return backoffMillis;
     }
 
+    /**
+     * Maximum number of chunks of a single large upload to send concurrently.
+     */
+    public int getParallelChunkUploads() {
+        return parallelChunkUploads;
+    }
+
+    /**
+     * Lower bound for adaptive chunk sizing, 0 when adaptive chunk sizing is disabled.
+     */
+    public int getMinChunkSize() {
+        return minChunkSize;
+    }
+
+    /**
+     * Upper bound for adaptive chunk sizing, 0 when adaptive chunk sizing is disabled.
+     */
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    /**
+     * Upload bandwidth cap of a single request in bytes per second, 0 for unlimited.
+     */
+    public long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
     public boolean hasRequirements() {
         return requiresCharging || requiresIdle || networkType == NetworkType.UNMETERED;
     }
@@ -82,7 +127,10 @@ public class UploadPolicy {
                 .requiresIdle(requiresIdle)
                 .backoffCriteria(backoffMillis, backoffPolicy)
                 .maxRetries(maxErrorRetries)
-                .networkPolicy(networkType);
+                .networkPolicy(networkType)
+                .parallelChunkUploads(parallelChunkUploads)
+                .adaptiveChunkSize(minChunkSize, maxChunkSize)
+                .maxBytesPerSecond(maxBytesPerSecond);
     }
 
     /**
@@ -130,6 +178,10 @@ public class UploadPolicy {
         int maxRetries = DEFAULT_MAX_ERROR_RETRIES;
         long backoffMillis = DEFAULT_BACKOFF_MILLIS;
         BackoffPolicy backoffPolicy = DEFAULT_BACKOFF_POLICY;
+        int parallelChunkUploads = DEFAULT_PARALLEL_CHUNK_UPLOADS;
+        int minChunkSize = 0;
+        int maxChunkSize = 0;
+        long maxBytesPerSecond = 0;
 
         /**
          * {@link NetworkType} required to execute the request.
@@ -182,11 +234,61 @@ public class UploadPolicy {
             return (T) this;
         }
 
+        /**
+         * Maximum number of chunks of a single large upload to send concurrently. Chunks are sent one after another by default.
+         * Note: Only payloads that can be read by position (e.g. files and byte arrays) are uploaded in parallel.
+         * @return Itself for chaining.
+         */
+        public T parallelChunkUploads(int parallelChunkUploads) {
+            if (parallelChunkUploads < 1) {
+                throw new IllegalArgumentException("Parallel chunk uploads must be at least 1");
+            }
+            this.parallelChunkUploads = parallelChunkUploads;
+            return (T) this;
+        }
+
+        /**
+         * Tune the chunk size of large uploads to the measured throughput, within the given bounds. Chunks grow while the
+         * network is fast and shrink when it's slow or when chunks fail. Pass 0 for both bounds to disable (the default).
+         * Note: Only payloads that can be read by position (e.g. files and byte arrays) are uploaded with adaptive chunks.
+         * @param minChunkSize Minimum chunk size in bytes, at least 5MB.
+         * @param maxChunkSize Maximum chunk size in bytes.
+         * @return Itself for chaining.
+         */
+        public T adaptiveChunkSize(int minChunkSize, int maxChunkSize) {
+            if (minChunkSize != 0 || maxChunkSize != 0) {
+                if (minChunkSize < MIN_CHUNK_SIZE) {
+                    throw new IllegalArgumentException("Minimum chunk size must be at least " + MIN_CHUNK_SIZE + " bytes");
+                }
+                if (maxChunkSize < minChunkSize) {
+                    throw new IllegalArgumentException("Maximum chunk size must not be smaller than the minimum chunk size");
+                }
+            }
+
+            this.minChunkSize = minChunkSize;
+            this.maxChunkSize = maxChunkSize;
+            return (T) this;
+        }
+
+        /**
+         * Cap the upload bandwidth of the request. Requests started using {@link com.cloudinary.android.UploadRequest#startNow(android.content.Context)}
+         * are subject to this cap as well, but bypass the global cap set using {@link GlobalUploadPolicy.Builder#maxTotalBytesPerSecond(long)}.
+         * @param maxBytesPerSecond Maximum upload rate in bytes per second, 0 for unlimited (the default).
+         * @return Itself for chaining.
+         */
+        public T maxBytesPerSecond(long maxBytesPerSecond) {
+            if (maxBytesPerSecond < 0) {
+                throw new IllegalArgumentException("Max bytes per second cannot be negative");
+            }
+            this.maxBytesPerSecond = maxBytesPerSecond;
+            return (T) this;
+        }
+
         /**
          * @return An instance of {@link UploadPolicy} get the requested configuration.
          */
         public UploadPolicy build() {
-            return new UploadPolicy(networkPolicy, requiresCharging, requiresIdle, maxRetries, backoffMillis, backoffPolicy);
+            return new UploadPolicy(networkPolicy, requiresCharging, requiresIdle, maxRetries, backoffMillis, backoffPolicy, parallelChunkUploads, minChunkSize, maxChunkSize, maxBytesPerSecond);
         }
     }
 
@@ -0,0 +1,38 @@
+package com.cloudinary.android.transport;
+
+/**
+ * Snapshot of the connection usage of an {@link HttpTransport}.
+ * Whether a request reused a kept-alive socket is not exposed by {@link java.net.HttpURLConnection}, so connection
+ * reuse is not measured.
+ */
+public class ConnectionMetrics {
+    private final long requests;
+    private final long discardedConnections;
+
+    public ConnectionMetrics(long requests, long discardedConnections) {
+        this.requests = requests;
+        this.discardedConnections = discardedConnections;
+    }
+
+    /**
+     * @return The number of requests sent, whether or not their connection reused a kept-alive socket.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return The number of connections closed instead of being returned to the pool.
+     */
+    public long getDiscardedConnections() {
+        return discardedConnections;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionMetrics{" +
+                "requests=" + requests +
+                ", discardedConnections=" + discardedConnections +
+                '}';
+    }
+}
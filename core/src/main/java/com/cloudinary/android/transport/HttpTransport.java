@@ -0,0 +1,31 @@
+package com.cloudinary.android.transport;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Creates and recycles the HTTP connections used to send upload requests.
+ * Set a custom implementation using {@link com.cloudinary.android.MediaManager#setHttpTransport(HttpTransport)}.
+ */
+public interface HttpTransport {
+
+    /**
+     * Opens a connection to the given url. The connection is configured and connected by the caller.
+     *
+     * @param url The request url.
+     * @return A new, not yet connected, connection.
+     * @throws IOException If the connection could not be opened.
+     */
+    HttpURLConnection openConnection(URL url) throws IOException;
+
+    /**
+     * Releases a connection once the caller is done with it.
+     *
+     * @param connection The connection to release.
+     * @param reusable   True if the response was fully read and the stream closed, meaning the underlying socket
+     *                   can be kept alive for following requests. False if the connection is in an unknown state
+     *                   (e.g. the request failed midway) and must not be reused.
+     */
+    void releaseConnection(HttpURLConnection connection, boolean reusable);
+}
@@ -0,0 +1,48 @@
+package com.cloudinary.android.transport;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Default {@link HttpTransport}, keeping connections alive between requests to the same host.
+ * <p>
+ * The platform {@link HttpURLConnection} implementation already maintains a bounded pool of keep-alive sockets per host,
+ * but {@link HttpURLConnection#disconnect()} closes the socket instead of returning it to that pool. This transport only
+ * disconnects connections that can't be reused, so consecutive requests (e.g. the chunks of a large upload) skip the
+ * TCP and TLS handshakes.
+ * <p>
+ * Whether the platform pool actually reused a socket for a request is not exposed by {@link HttpURLConnection}, so
+ * the metrics only count the requests and the connections discarded instead of being returned to the pool.
+ */
+public class KeepAliveHttpTransport implements HttpTransport {
+    private long requests;
+    private long discardedConnections;
+
+    @Override
+    public HttpURLConnection openConnection(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        synchronized (this) {
+            requests++;
+        }
+
+        return connection;
+    }
+
+    @Override
+    public void releaseConnection(HttpURLConnection connection, boolean reusable) {
+        if (!reusable) {
+            connection.disconnect();
+            synchronized (this) {
+                discardedConnections++;
+            }
+        }
+    }
+
+    /**
+     * @return A snapshot of the connection usage since this transport was created.
+     */
+    public synchronized ConnectionMetrics getMetrics() {
+        return new ConnectionMetrics(requests, discardedConnections);
+    }
+}
@@ -11,6 +11,7 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.cloudinary.android.MediaManager;
 import com.cloudinary.android.UploadRequest;
 import com.cloudinary.android.uploadwidget.model.CropPoints;
 import com.cloudinary.android.uploadwidget.ui.UploadWidgetActivity;
@@ -69,6 +70,11 @@ public final class UploadWidget {
      * @param options The launch option to define the required upload widget behaviour
      */
     public static void startActivity(@NonNull Activity activity, int requestCode, Options options) {
+        if (options.preconnect) {
+            // warm up the upload connection while the user is selecting and editing the files
+            MediaManager.get().preconnect();
+        }
+
         Intent intent = new Intent(activity, UploadWidgetActivity.class).putExtra(ACTION_EXTRA, options.action);
 
         if (options.uris != null && !options.uris.isEmpty()) {
@@ -220,6 +226,7 @@ public final class UploadWidget {
     public static class Options {
         final Action action;
         final Collection<Uri> uris;
+        final boolean preconnect;
 
         /**
          * Construct a new instance to use when launching the upload widget activity.
@@ -232,8 +239,20 @@ public final class UploadWidget {
          * @param uris           A list of Uris of files to display and upload.
          */
         public Options(@NonNull Action action, @Nullable Collection<Uri> uris) {
+            this(action, uris, false);
+        }
+
+        /**
+         * Construct a new instance to use when launching the upload widget activity.
+         *
+         * @param action     See {@link #Options(Action, Collection)}.
+         * @param uris       A list of Uris of files to display and upload.
+         * @param preconnect Warm up a connection to the upload endpoint when the widget is opened, see {@link MediaManager#preconnect()}.
+         */
+        public Options(@NonNull Action action, @Nullable Collection<Uri> uris, boolean preconnect) {
             this.action = action;
             this.uris = uris;
+            this.preconnect = preconnect;
         }
     }
 